@@ -1,13 +1,24 @@
 package io.ghes.design_patterns.behavioural.chain_responsability;
 
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.ghes.design_patterns.behavioural.chain_responsability.handlers.Cassette;
+import io.ghes.design_patterns.behavioural.chain_responsability.handlers.DispenseBatch;
+import io.ghes.design_patterns.behavioural.chain_responsability.handlers.DispensePlanner;
+import io.ghes.design_patterns.behavioural.chain_responsability.handlers.HandlerChain;
 import io.ghes.design_patterns.behavioural.chain_responsability.handlers.impl.FiftyEuroHandler;
 import io.ghes.design_patterns.behavioural.chain_responsability.handlers.impl.HoundredEuroHandler;
+import io.ghes.design_patterns.behavioural.chain_responsability.handlers.impl.OptimalChangeHandler;
 import io.ghes.design_patterns.behavioural.chain_responsability.handlers.impl.TenEuroHandler;
 import io.ghes.design_patterns.behavioural.chain_responsability.handlers.impl.TwentyEuroHandler;
 
 public class Application {
 
-	public static void main(final String[] args) {
+	public static void main(final String[] args) throws InterruptedException {
 		final HoundredEuroHandler houndred = new HoundredEuroHandler();
 		final FiftyEuroHandler fifty = new FiftyEuroHandler();
 		final TwentyEuroHandler twenty = new TwentyEuroHandler();
@@ -19,7 +30,54 @@ public class Application {
 		houndred.dispense(280);
 		System.out.println("----");
 		houndred.dispense(130);
+		System.out.println("----");
+
+		// a whole day of withdrawals split across the cores
+		final int[] day = new int[1_000_000];
+		for (int i = 0; i < day.length; i++) {
+			day[i] = 10 * (1 + i % 50);
+		}
+		final DispenseBatch batch = houndred.dispense(day);
+		for (int c = 0; c < batch.getDenominationCount(); c++) {
+			System.out.println("Total " + batch.getDenomination(c) + "€ bill(s): " + batch.getTotal(c));
+		}
+		System.out.println("----");
+
+		// without 10€ bills the greedy chain cannot give 60€, the planner can
+		final OptimalChangeHandler optimal = new OptimalChangeHandler(new DispensePlanner(1000, 100, 50, 20));
+		optimal.dispense(60);
+		System.out.println("----");
+		optimal.dispense(130);
+		System.out.println("----");
 
+		// many customers withdrawing at once from limited cassettes
+		houndred.setCassette(new Cassette(100, 20));
+		fifty.setCassette(new Cassette(50, 20));
+		twenty.setCassette(new Cassette(20, 50));
+		ten.setCassette(new Cassette(10, 50));
+		final AtomicInteger served = new AtomicInteger();
+		final ExecutorService customers = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 1000; i++) {
+			customers.execute(() -> {
+				if (houndred.withdraw(180) != null) {
+					served.incrementAndGet();
+				}
+			});
+		}
+		customers.shutdown();
+		customers.awaitTermination(1, TimeUnit.MINUTES);
+		System.out.println("Served " + served.get() + " withdrawals of 180€");
+		System.out.println(Arrays.asList(houndred.getCassette(), fifty.getCassette(), twenty.getCassette(),
+				ten.getCassette()));
+		System.out.println("----");
+
+		// the 50€ cassette is empty: take it out of the chain while it is in use
+		final HandlerChain chain = new HandlerChain(new HoundredEuroHandler(), new FiftyEuroHandler(),
+				new TwentyEuroHandler(), new TenEuroHandler());
+		chain.dispense(280);
+		System.out.println("----");
+		chain.remove(50);
+		chain.dispense(280);
 	}
 
 }
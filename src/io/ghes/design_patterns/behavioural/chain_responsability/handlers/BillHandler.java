@@ -0,0 +1,221 @@
+package io.ghes.design_patterns.behavioural.chain_responsability.handlers;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+
+/**
+ * Base class for handlers emitting bills of a single denomination.
+ *
+ * Besides the plain {@link #dispense(int)}, a bill handler can be backed by a
+ * {@link Cassette} and take part in a {@link #withdraw(int, int[], int)}: every
+ * handler reserves its bills, passes the remainder along the chain and gives
+ * the bills back if the rest of the chain cannot cover it. No lock is held
+ * while the request travels the chain.
+ *
+ * @author ghesio
+ *
+ */
+public abstract class BillHandler implements AbstracHandler {
+
+	private final int denomination;
+	protected AbstracHandler nextHandler;
+	private volatile Cassette cassette;
+
+	protected BillHandler(final int denomination) {
+		this.denomination = denomination;
+	}
+
+	@Override
+	public void setNextHandler(final AbstracHandler nextHandler) {
+		this.nextHandler = nextHandler;
+	}
+
+	public AbstracHandler getNextHandler() {
+		return this.nextHandler;
+	}
+
+	public int getDenomination() {
+		return this.denomination;
+	}
+
+	public Cassette getCassette() {
+		return this.cassette;
+	}
+
+	/**
+	 * @param cassette the bill stock, or <code>null</code> for an unlimited
+	 *                 supply
+	 */
+	public void setCassette(final Cassette cassette) {
+		if (cassette != null && cassette.getDenomination() != this.denomination) {
+			throw new IllegalArgumentException(
+					"Cassette of " + cassette.getDenomination() + " cannot feed a " + this.denomination + " handler");
+		}
+		this.cassette = cassette;
+	}
+
+	/**
+	 * Number of handlers from this one to the end of the chain, i.e. the size
+	 * of the buffer needed by {@link #withdraw(int, int[], int)}.
+	 */
+	public int getChainLength() {
+		int length = 1;
+		AbstracHandler handler = this.nextHandler;
+		while (handler instanceof BillHandler) {
+			length++;
+			handler = ((BillHandler) handler).nextHandler;
+		}
+		return length;
+	}
+
+	/**
+	 * Denominations from this handler to the end of the chain, in chain order.
+	 */
+	public int[] getChainDenominations() {
+		final int[] denominations = new int[this.getChainLength()];
+		BillHandler handler = this;
+		for (int i = 0; i < denominations.length; i++) {
+			denominations[i] = handler.denomination;
+			if (handler.nextHandler instanceof BillHandler) {
+				handler = (BillHandler) handler.nextHandler;
+			}
+		}
+		return denominations;
+	}
+
+	/**
+	 * Same as {@link #dispense(int)}, but with unlimited bills and without
+	 * printing: the number of bills of each handler is written in
+	 * <code>bills</code>, this one at <code>slot</code>, the next one at
+	 * <code>slot + 1</code> and so on.
+	 *
+	 * @return the part of the amount that no handler could cover
+	 */
+	public int dispense(final int money, final int[] bills, final int slot) {
+		bills[slot] = money / this.denomination;
+		final int remainder = money % this.denomination;
+		if (this.nextHandler instanceof BillHandler) {
+			return ((BillHandler) this.nextHandler).dispense(remainder, bills, slot + 1);
+		}
+		return remainder;
+	}
+
+	/**
+	 * Allocation-free variant of {@link #dispense(int)}: the bills are written
+	 * into a result reused across withdrawals and nothing is printed.
+	 *
+	 * @param result a result created for this handler's chain
+	 */
+	public void dispense(final int money, final DispenseResult result) {
+		result.amount = money;
+		result.undispensed = this.dispense(money, result.bills, 0);
+	}
+
+	/**
+	 * Dispenses a whole batch of amounts on the common fork-join pool.
+	 */
+	public DispenseBatch dispense(final int[] amounts) {
+		return this.dispense(amounts, ForkJoinPool.commonPool());
+	}
+
+	public DispenseBatch dispense(final int[] amounts, final ForkJoinPool pool) {
+		final int[] denominations = this.getChainDenominations();
+		final int columns = denominations.length;
+		final int[] matrix = new int[Math.multiplyExact(amounts.length, columns)];
+		final int[] undispensed = new int[amounts.length];
+		final long[] totals = pool
+				.invoke(new DispenseBatchTask(this, columns, amounts, matrix, undispensed, 0, amounts.length));
+		return new DispenseBatch(denominations, matrix, undispensed, totals);
+	}
+
+	/**
+	 * Reserves the bills for <code>money</code> from the cassettes of this
+	 * handler and of the following ones.
+	 *
+	 * @param bills buffer receiving the number of bills taken by each handler,
+	 *              this one writing at <code>slot</code>, the next one at
+	 *              <code>slot + 1</code> and so on
+	 * @return <code>true</code> if the whole amount has been reserved,
+	 *         <code>false</code> if nothing has been taken
+	 */
+	public boolean withdraw(final int money, final int[] bills, final int slot) {
+		return this.withdraw(money, bills, slot, this.maxFallback(),
+				remainder -> this.passAlong(remainder, bills, slot + 1));
+	}
+
+	/**
+	 * The reservation done by {@link #withdraw(int, int[], int)}, with the rest
+	 * of the chain given by the caller instead of <code>nextHandler</code>.
+	 *
+	 * @param maxFallback how many bills may be given back to the rest of the
+	 *                    chain, see {@link #maxFallback(int, int)}
+	 * @param rest        reserves a remainder from the rest of the chain
+	 */
+	boolean withdraw(final int money, final int[] bills, final int slot, final int maxFallback,
+			final IntPredicate rest) {
+		if (money < 0) {
+			return false;
+		}
+		final Cassette cassette = this.cassette;
+		final int wanted = money / this.denomination;
+		final int reserved = cassette == null ? wanted : cassette.reserveUpTo(wanted);
+		// try with as many bills as possible, then fall back on fewer ones
+		final int lowest = Math.max(0, reserved - maxFallback);
+		for (int taken = reserved; taken >= lowest; taken--) {
+			if (rest.test(money - taken * this.denomination)) {
+				if (cassette != null) {
+					cassette.release(reserved - taken);
+				}
+				bills[slot] = taken;
+				return true;
+			}
+		}
+		if (cassette != null) {
+			cassette.release(reserved);
+		}
+		bills[slot] = 0;
+		return false;
+	}
+
+	/**
+	 * Convenience variant of {@link #withdraw(int, int[], int)}.
+	 *
+	 * @return the bills taken by each handler of the chain, or
+	 *         <code>null</code> if the amount cannot be covered
+	 */
+	public int[] withdraw(final int money) {
+		final int[] bills = new int[this.getChainLength()];
+		return this.withdraw(money, bills, 0) ? bills : null;
+	}
+
+	/**
+	 * Giving back the least common multiple of the two denominations is
+	 * already enough for the next handler to use its own bills instead, so the
+	 * fallback stops there.
+	 */
+	private int maxFallback() {
+		if (!(this.nextHandler instanceof BillHandler)) {
+			return 0;
+		}
+		return maxFallback(this.denomination, ((BillHandler) this.nextHandler).denomination);
+	}
+
+	static int maxFallback(final int denomination, final int nextDenomination) {
+		int a = denomination;
+		int b = nextDenomination;
+		while (b != 0) {
+			final int t = a % b;
+			a = b;
+			b = t;
+		}
+		return nextDenomination / a;
+	}
+
+	private boolean passAlong(final int remainder, final int[] bills, final int slot) {
+		if (this.nextHandler instanceof BillHandler) {
+			return ((BillHandler) this.nextHandler).withdraw(remainder, bills, slot);
+		}
+		return remainder == 0;
+	}
+
+}
@@ -0,0 +1,72 @@
+package io.ghes.design_patterns.behavioural.chain_responsability.handlers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stock of bills of a single denomination, shared by all the threads
+ * withdrawing from the ATM.
+ *
+ * Bills are reserved with a compare-and-set loop, so concurrent withdrawals
+ * never take a lock and the stock can never go below zero.
+ *
+ * @author ghesio
+ *
+ */
+public class Cassette {
+
+	private final int denomination;
+	private final AtomicInteger available;
+
+	public Cassette(final int denomination, final int bills) {
+		if (bills < 0) {
+			throw new IllegalArgumentException("Bills must not be negative: " + bills);
+		}
+		this.denomination = denomination;
+		this.available = new AtomicInteger(bills);
+	}
+
+	public int getDenomination() {
+		return this.denomination;
+	}
+
+	public int getAvailable() {
+		return this.available.get();
+	}
+
+	/**
+	 * Reserves as many bills as possible, up to <code>wanted</code>.
+	 *
+	 * @return the number of bills actually reserved
+	 */
+	public int reserveUpTo(final int wanted) {
+		if (wanted <= 0) {
+			return 0;
+		}
+		while (true) {
+			final int current = this.available.get();
+			final int taken = Math.min(current, wanted);
+			if (taken == 0 || this.available.compareAndSet(current, current - taken)) {
+				return taken;
+			}
+		}
+	}
+
+	/**
+	 * Gives back bills previously reserved with {@link #reserveUpTo(int)}.
+	 */
+	public void release(final int bills) {
+		if (bills > 0) {
+			this.available.addAndGet(bills);
+		}
+	}
+
+	public void refill(final int bills) {
+		this.release(bills);
+	}
+
+	@Override
+	public String toString() {
+		return "Cassette [denomination=" + this.denomination + ", available=" + this.available.get() + "]";
+	}
+
+}
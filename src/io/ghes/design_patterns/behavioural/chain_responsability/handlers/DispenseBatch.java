@@ -0,0 +1,65 @@
+package io.ghes.design_patterns.behavioural.chain_responsability.handlers;
+
+import java.util.Arrays;
+
+/**
+ * Result of a batch of withdrawals: the bills emitted for every request,
+ * stored row by row in a single flat matrix, plus the totals per
+ * denomination.
+ *
+ * @author ghesio
+ *
+ */
+public final class DispenseBatch {
+
+	private final int[] denominations;
+	private final int[] matrix;
+	private final int[] undispensed;
+	private final long[] totals;
+
+	DispenseBatch(final int[] denominations, final int[] matrix, final int[] undispensed, final long[] totals) {
+		this.denominations = denominations;
+		this.matrix = matrix;
+		this.undispensed = undispensed;
+		this.totals = totals;
+	}
+
+	public int getRequestCount() {
+		return this.undispensed.length;
+	}
+
+	public int getDenominationCount() {
+		return this.denominations.length;
+	}
+
+	public int getDenomination(final int column) {
+		return this.denominations[column];
+	}
+
+	public int getBills(final int request, final int column) {
+		return this.matrix[request * this.denominations.length + column];
+	}
+
+	public int[] getBills(final int request) {
+		final int from = request * this.denominations.length;
+		return Arrays.copyOfRange(this.matrix, from, from + this.denominations.length);
+	}
+
+	/**
+	 * @return the part of the request that no bill could cover
+	 */
+	public int getUndispensed(final int request) {
+		return this.undispensed[request];
+	}
+
+	public long getTotal(final int column) {
+		return this.totals[column];
+	}
+
+	@Override
+	public String toString() {
+		return "DispenseBatch [requests=" + this.undispensed.length + ", denominations="
+				+ Arrays.toString(this.denominations) + ", totals=" + Arrays.toString(this.totals) + "]";
+	}
+
+}
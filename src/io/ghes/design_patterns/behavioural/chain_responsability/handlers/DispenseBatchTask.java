@@ -0,0 +1,69 @@
+package io.ghes.design_patterns.behavioural.chain_responsability.handlers;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Splits a batch of amounts in halves until it is small enough to be
+ * walked through the chain on a single thread, then merges the totals per
+ * denomination on the way back.
+ *
+ * @author ghesio
+ *
+ */
+class DispenseBatchTask extends RecursiveTask<long[]> {
+
+	private static final long serialVersionUID = 1L;
+
+	static final int THRESHOLD = 8192;
+
+	private final BillHandler chain;
+	private final int columns;
+	private final int[] amounts;
+	private final int[] matrix;
+	private final int[] undispensed;
+	private final int from;
+	private final int to;
+
+	DispenseBatchTask(final BillHandler chain, final int columns, final int[] amounts, final int[] matrix,
+			final int[] undispensed, final int from, final int to) {
+		this.chain = chain;
+		this.columns = columns;
+		this.amounts = amounts;
+		this.matrix = matrix;
+		this.undispensed = undispensed;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	protected long[] compute() {
+		if (this.to - this.from <= THRESHOLD) {
+			return this.computeDirectly();
+		}
+		final int middle = (this.from + this.to) >>> 1;
+		final DispenseBatchTask left = new DispenseBatchTask(this.chain, this.columns, this.amounts, this.matrix,
+				this.undispensed, this.from, middle);
+		final DispenseBatchTask right = new DispenseBatchTask(this.chain, this.columns, this.amounts, this.matrix,
+				this.undispensed, middle, this.to);
+		left.fork();
+		final long[] totals = right.compute();
+		final long[] leftTotals = left.join();
+		for (int c = 0; c < this.columns; c++) {
+			totals[c] += leftTotals[c];
+		}
+		return totals;
+	}
+
+	private long[] computeDirectly() {
+		final long[] totals = new long[this.columns];
+		for (int i = this.from; i < this.to; i++) {
+			final int offset = i * this.columns;
+			this.undispensed[i] = this.chain.dispense(this.amounts[i], this.matrix, offset);
+			for (int c = 0; c < this.columns; c++) {
+				totals[c] += this.matrix[offset + c];
+			}
+		}
+		return totals;
+	}
+
+}
@@ -0,0 +1,75 @@
+package io.ghes.design_patterns.behavioural.chain_responsability.handlers;
+
+import java.util.Arrays;
+
+/**
+ * Immutable result of a withdrawal: how many bills of each denomination must
+ * be emitted.
+ *
+ * @author ghesio
+ *
+ */
+public final class DispensePlan {
+
+	private final int[] denominations;
+	private final int[] counts;
+	private final int amount;
+	private final int totalBills;
+
+	DispensePlan(final int[] denominations, final int[] counts) {
+		this.denominations = denominations;
+		this.counts = counts;
+		int amount = 0;
+		int totalBills = 0;
+		for (int i = 0; i < counts.length; i++) {
+			amount += denominations[i] * counts[i];
+			totalBills += counts[i];
+		}
+		this.amount = amount;
+		this.totalBills = totalBills;
+	}
+
+	public int getAmount() {
+		return this.amount;
+	}
+
+	public int getTotalBills() {
+		return this.totalBills;
+	}
+
+	public int getDenominationCount() {
+		return this.denominations.length;
+	}
+
+	public int getDenomination(final int index) {
+		return this.denominations[index];
+	}
+
+	public int getCount(final int index) {
+		return this.counts[index];
+	}
+
+	public int getBills(final int denomination) {
+		for (int i = 0; i < this.denominations.length; i++) {
+			if (this.denominations[i] == denomination) {
+				return this.counts[i];
+			}
+		}
+		return 0;
+	}
+
+	public void print() {
+		for (int i = 0; i < this.counts.length; i++) {
+			if (this.counts[i] != 0) {
+				System.out.println("Dispensing " + this.counts[i] + " " + this.denominations[i] + "€ bill(s)");
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "DispensePlan [amount=" + this.amount + ", denominations=" + Arrays.toString(this.denominations)
+				+ ", counts=" + Arrays.toString(this.counts) + "]";
+	}
+
+}
@@ -0,0 +1,117 @@
+package io.ghes.design_patterns.behavioural.chain_responsability.handlers;
+
+import java.util.Arrays;
+
+/**
+ * Computes the plan with the fewest bills for any amount up to a maximum,
+ * for an arbitrary set of denominations.
+ *
+ * The dynamic-programming table is built once in the constructor, so that
+ * also sets where the greedy chain gives a wrong answer (e.g. 60 € with
+ * 50 € and 20 € bills) are handled. Plans are cached on first lookup, so
+ * replaying the same amount costs a single array access.
+ *
+ * @author ghesio
+ *
+ */
+public class DispensePlanner {
+
+	private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private final int[] denominations;
+	private final int maxAmount;
+	// fewest bills needed for each amount
+	private final int[] minBills;
+	// index of the last bill added to reach each amount
+	private final int[] lastBill;
+	private final DispensePlan[] cache;
+
+	public DispensePlanner(final int maxAmount, final int... denominations) {
+		if (maxAmount < 0) {
+			throw new IllegalArgumentException("Max amount must not be negative: " + maxAmount);
+		}
+		this.denominations = sortDescending(denominations);
+		this.maxAmount = maxAmount;
+		this.minBills = new int[maxAmount + 1];
+		this.lastBill = new int[maxAmount + 1];
+		this.cache = new DispensePlan[maxAmount + 1];
+		this.buildTable();
+	}
+
+	public int getMaxAmount() {
+		return this.maxAmount;
+	}
+
+	public int[] getDenominations() {
+		return this.denominations.clone();
+	}
+
+	public boolean canDispense(final int money) {
+		return money >= 0 && money <= this.maxAmount && this.minBills[money] != UNREACHABLE;
+	}
+
+	/**
+	 * @return the plan with the fewest bills, or <code>null</code> if the amount
+	 *         cannot be composed with the available denominations
+	 */
+	public DispensePlan plan(final int money) {
+		if (money < 0 || money > this.maxAmount) {
+			throw new IllegalArgumentException("Amount out of range [0, " + this.maxAmount + "]: " + money);
+		}
+		if (this.minBills[money] == UNREACHABLE) {
+			return null;
+		}
+		// plans are immutable, so a racy publication at worst builds one twice
+		DispensePlan plan = this.cache[money];
+		if (plan == null) {
+			plan = this.buildPlan(money);
+			this.cache[money] = plan;
+		}
+		return plan;
+	}
+
+	private void buildTable() {
+		this.minBills[0] = 0;
+		for (int amount = 1; amount <= this.maxAmount; amount++) {
+			int best = UNREACHABLE;
+			int bestBill = -1;
+			for (int i = 0; i < this.denominations.length; i++) {
+				final int rest = amount - this.denominations[i];
+				if (rest >= 0 && this.minBills[rest] != UNREACHABLE && this.minBills[rest] + 1 < best) {
+					best = this.minBills[rest] + 1;
+					bestBill = i;
+				}
+			}
+			this.minBills[amount] = best;
+			this.lastBill[amount] = bestBill;
+		}
+	}
+
+	private DispensePlan buildPlan(final int money) {
+		final int[] counts = new int[this.denominations.length];
+		int rest = money;
+		while (rest > 0) {
+			final int bill = this.lastBill[rest];
+			counts[bill]++;
+			rest -= this.denominations[bill];
+		}
+		return new DispensePlan(this.denominations, counts);
+	}
+
+	private static int[] sortDescending(final int[] denominations) {
+		final int[] sorted = Arrays.stream(denominations)
+				.distinct()
+				.sorted()
+				.toArray();
+		if (sorted.length == 0 || sorted[0] <= 0) {
+			throw new IllegalArgumentException("Denominations must be positive: " + Arrays.toString(denominations));
+		}
+		for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+			final int tmp = sorted[i];
+			sorted[i] = sorted[j];
+			sorted[j] = tmp;
+		}
+		return sorted;
+	}
+
+}
@@ -0,0 +1,63 @@
+package io.ghes.design_patterns.behavioural.chain_responsability.handlers;
+
+/**
+ * Reusable holder for the bills of a single withdrawal.
+ *
+ * Unlike {@link DispensePlan} it is mutable: the caller creates one per
+ * thread and passes it to {@link BillHandler#dispense(int, DispenseResult)}
+ * again and again, so that no object is created for each withdrawal.
+ *
+ * @author ghesio
+ *
+ */
+public final class DispenseResult {
+
+	private final int[] denominations;
+	final int[] bills;
+	int amount;
+	int undispensed;
+
+	public DispenseResult(final BillHandler chain) {
+		this.denominations = chain.getChainDenominations();
+		this.bills = new int[this.denominations.length];
+	}
+
+	public int getAmount() {
+		return this.amount;
+	}
+
+	/**
+	 * @return the part of the amount that no handler could cover
+	 */
+	public int getUndispensed() {
+		return this.undispensed;
+	}
+
+	public int getDenominationCount() {
+		return this.denominations.length;
+	}
+
+	public int getDenomination(final int slot) {
+		return this.denominations[slot];
+	}
+
+	public int getBills(final int slot) {
+		return this.bills[slot];
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("DispenseResult [amount=").append(this.amount);
+		for (int i = 0; i < this.bills.length; i++) {
+			sb.append(", ")
+					.append(this.denominations[i])
+					.append("€=")
+					.append(this.bills[i]);
+		}
+		return sb.append(", undispensed=")
+				.append(this.undispensed)
+				.append("]")
+				.toString();
+	}
+
+}
@@ -0,0 +1,171 @@
+package io.ghes.design_patterns.behavioural.chain_responsability.handlers;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * A chain of bill handlers that can be changed while withdrawals are in
+ * flight.
+ *
+ * The chain is published as an immutable {@link Snapshot} holding the
+ * handlers in a flat array. Every change copies the array and swaps the
+ * snapshot atomically, so readers never lock, always see a consistent chain
+ * and simply iterate the array instead of following the
+ * <code>nextHandler</code> links.
+ *
+ * @author ghesio
+ *
+ */
+public class HandlerChain {
+
+	private final AtomicReference<Snapshot> snapshot;
+
+	public HandlerChain(final BillHandler... handlers) {
+		this.snapshot = new AtomicReference<>(new Snapshot(handlers.clone()));
+	}
+
+	public Snapshot snapshot() {
+		return this.snapshot.get();
+	}
+
+	public void add(final BillHandler handler) {
+		this.update(handlers -> {
+			final BillHandler[] copy = Arrays.copyOf(handlers, handlers.length + 1);
+			copy[handlers.length] = handler;
+			return copy;
+		});
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException if the index is not between 0 and the
+	 *                                   size of the chain
+	 */
+	public void add(final int index, final BillHandler handler) {
+		this.update(handlers -> {
+			if (index < 0 || index > handlers.length) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + handlers.length);
+			}
+			final BillHandler[] copy = new BillHandler[handlers.length + 1];
+			System.arraycopy(handlers, 0, copy, 0, index);
+			copy[index] = handler;
+			System.arraycopy(handlers, index, copy, index + 1, handlers.length - index);
+			return copy;
+		});
+	}
+
+	/**
+	 * Removes the handlers of the given denomination, e.g. when its cassette
+	 * runs empty.
+	 */
+	public void remove(final int denomination) {
+		this.update(handlers -> Arrays.stream(handlers)
+				.filter(h -> h.getDenomination() != denomination)
+				.toArray(BillHandler[]::new));
+	}
+
+	public void reorder(final Comparator<BillHandler> order) {
+		this.update(handlers -> {
+			final BillHandler[] copy = handlers.clone();
+			Arrays.sort(copy, order);
+			return copy;
+		});
+	}
+
+	public void dispense(final int money) {
+		this.snapshot()
+				.dispense(money);
+	}
+
+	private void update(final UnaryOperator<BillHandler[]> change) {
+		Snapshot current;
+		Snapshot next;
+		do {
+			current = this.snapshot.get();
+			next = new Snapshot(change.apply(current.handlers));
+		} while (!this.snapshot.compareAndSet(current, next));
+	}
+
+	/**
+	 * Immutable view of the chain at a given time.
+	 */
+	public static final class Snapshot {
+
+		private final BillHandler[] handlers;
+		private final int[] denominations;
+
+		private Snapshot(final BillHandler[] handlers) {
+			this.handlers = handlers;
+			this.denominations = new int[handlers.length];
+			for (int i = 0; i < handlers.length; i++) {
+				this.denominations[i] = handlers[i].getDenomination();
+			}
+		}
+
+		public int size() {
+			return this.handlers.length;
+		}
+
+		public BillHandler getHandler(final int slot) {
+			return this.handlers[slot];
+		}
+
+		public int getDenomination(final int slot) {
+			return this.denominations[slot];
+		}
+
+		/**
+		 * Greedy dispense with unlimited bills, without printing.
+		 *
+		 * @param bills buffer of at least {@link #size()} slots
+		 * @return the part of the amount that no handler could cover
+		 */
+		public int dispense(final int money, final int[] bills) {
+			int remainder = money;
+			for (int i = 0; i < this.denominations.length; i++) {
+				bills[i] = remainder / this.denominations[i];
+				remainder %= this.denominations[i];
+			}
+			return remainder;
+		}
+
+		public void dispense(final int money) {
+			final int[] bills = new int[this.denominations.length];
+			final int remainder = this.dispense(money, bills);
+			for (int i = 0; i < bills.length; i++) {
+				if (bills[i] != 0) {
+					System.out.println("Dispensing " + bills[i] + " " + this.denominations[i] + "€ bill(s)");
+				}
+			}
+			if (remainder != 0) {
+				System.out.println("Cannot dispense " + remainder + "€");
+			}
+		}
+
+		/**
+		 * Same as {@link BillHandler#withdraw(int, int[], int)}, going through
+		 * the handlers in this snapshot instead of their
+		 * <code>nextHandler</code> links.
+		 *
+		 * @param bills buffer of at least {@link #size()} slots
+		 */
+		public boolean withdraw(final int money, final int[] bills) {
+			return this.withdraw(money, bills, 0);
+		}
+
+		private boolean withdraw(final int money, final int[] bills, final int slot) {
+			if (slot == this.handlers.length) {
+				return money == 0;
+			}
+			final int fallback = slot + 1 < this.handlers.length
+					? BillHandler.maxFallback(this.denominations[slot], this.denominations[slot + 1])
+					: 0;
+			// the handler's own logic, chained along this snapshot
+			return this.handlers[slot].withdraw(money, bills, slot, fallback,
+					remainder -> this.withdraw(remainder, bills, slot + 1));
+		}
+
+	}
+
+}
@@ -1,14 +1,11 @@
 package io.ghes.design_patterns.behavioural.chain_responsability.handlers.impl;
 
-import io.ghes.design_patterns.behavioural.chain_responsability.handlers.AbstracHandler;
+import io.ghes.design_patterns.behavioural.chain_responsability.handlers.BillHandler;
 
-public class FiftyEuroHandler implements AbstracHandler {
+public class FiftyEuroHandler extends BillHandler {
 
-	private AbstracHandler nextHandler;
-
-	@Override
-	public void setNextHandler(final AbstracHandler nextHandler) {
-		this.nextHandler = nextHandler;
+	public FiftyEuroHandler() {
+		super(50);
 	}
 
 	@Override
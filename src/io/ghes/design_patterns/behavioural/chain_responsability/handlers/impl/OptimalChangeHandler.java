@@ -0,0 +1,37 @@
+package io.ghes.design_patterns.behavioural.chain_responsability.handlers.impl;
+
+import io.ghes.design_patterns.behavioural.chain_responsability.handlers.AbstracHandler;
+import io.ghes.design_patterns.behavioural.chain_responsability.handlers.DispensePlan;
+import io.ghes.design_patterns.behavioural.chain_responsability.handlers.DispensePlanner;
+
+public class OptimalChangeHandler implements AbstracHandler {
+
+	private final DispensePlanner planner;
+	private AbstracHandler nextHandler;
+
+	public OptimalChangeHandler(final DispensePlanner planner) {
+		this.planner = planner;
+	}
+
+	@Override
+	public void setNextHandler(final AbstracHandler nextHandler) {
+		this.nextHandler = nextHandler;
+	}
+
+	public DispensePlan plan(final int money) {
+		return this.planner.canDispense(money) ? this.planner.plan(money) : null;
+	}
+
+	@Override
+	public void dispense(final int money) {
+		final DispensePlan plan = this.plan(money);
+		if (plan != null) {
+			plan.print();
+		} else if (this.nextHandler != null) {
+			this.nextHandler.dispense(money);
+		} else {
+			System.out.println("Cannot dispense " + money + "€");
+		}
+	}
+
+}
@@ -1,8 +1,13 @@
 package io.ghes.design_patterns.behavioural.chain_responsability.handlers.impl;
 
 import io.ghes.design_patterns.behavioural.chain_responsability.handlers.AbstracHandler;
+import io.ghes.design_patterns.behavioural.chain_responsability.handlers.BillHandler;
 
-public class TenEuroHandler implements AbstracHandler {
+public class TenEuroHandler extends BillHandler {
+
+	public TenEuroHandler() {
+		super(10);
+	}
 
 	@Override
 	public void setNextHandler(final AbstracHandler nextHandler) {
@@ -1,8 +1,15 @@
 package io.ghes.design_patterns.behavioural.command;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 public class Application {
 
-	public static void main(final String[] args) {
+	public static void main(final String[] args) throws InterruptedException, IOException {
 		final FileSystemReceiver fs = getUnderlyingFileSystem();
 
 		// creating command and associating with receiver
@@ -21,6 +28,57 @@ public class Application {
 		final CloseFileCommand closeFileCommand = new CloseFileCommand(fs);
 		file = new FileInvoker(closeFileCommand);
 		file.execute();
+
+		// the same commands submitted to a bus, without waiting for each of them
+		try (final CommandBus bus = new CommandBus(4, 1024)) {
+			bus.submit(new OpenFileCommand(fs));
+			bus.submit(new WriteFileCommand(fs));
+			final CompletableFuture<Void> closed = bus.submit(new CloseFileCommand(fs));
+			closed.join();
+		}
+
+		// repeated open/close pairs collapsed before execution
+		final CommandCoalescer coalescer = new CommandCoalescer(Command::execute);
+		for (int i = 0; i < 3; i++) {
+			coalescer.submit(new OpenFileCommand(fs));
+			coalescer.submit(new WriteFileCommand(fs));
+			coalescer.submit(new CloseFileCommand(fs));
+		}
+		coalescer.flush();
+
+		// real writes, journaled before being executed
+		final Path directory = Files.createTempDirectory("journal-");
+		final ChannelFileSystemReceiver disk = new ChannelFileSystemReceiver(directory.resolve("data.txt"));
+		final FileCommandCodec codec = new FileCommandCodec();
+		codec.register("data", disk);
+		try (final CommandJournal journal = new CommandJournal(directory.resolve("wal"), 1024 * 1024, codec)) {
+			System.out.println("Replayed " + journal.replay() + " command(s)");
+			final CommandCoalescer appender = new CommandCoalescer(journal::execute);
+			for (final String line : new String[] { "Hello, ", "journal!\n" }) {
+				appender.submit(new OpenFileCommand(disk));
+				appender.submit(new WriteFileCommand(disk, line.getBytes(StandardCharsets.UTF_8)));
+				appender.submit(new CloseFileCommand(disk));
+			}
+			appender.flush();
+		}
+		System.out.print(Files.readString(disk.getPath()));
+
+		// undo and redo, keeping at most 1 KB of history
+		final CommandHistory history = new CommandHistory(1024);
+		history.execute(new OpenFileCommand(disk));
+		history.execute(new WriteFileCommand(disk, "Typo!\n".getBytes(StandardCharsets.UTF_8)));
+		history.undo();
+		history.execute(new WriteFileCommand(disk, "Bye!\n".getBytes(StandardCharsets.UTF_8)));
+		history.execute(new CloseFileCommand(disk));
+		System.out.print(Files.readString(disk.getPath()));
+
+		// delayed commands, the most urgent first when they are due together
+		try (final CommandScheduler scheduler = new CommandScheduler(1, TimeUnit.MILLISECONDS)) {
+			scheduler.schedule(new CloseFileCommand(fs), 50, TimeUnit.MILLISECONDS, 0);
+			scheduler.schedule(new WriteFileCommand(fs), 20, TimeUnit.MILLISECONDS, 0);
+			scheduler.schedule(new OpenFileCommand(fs), 20, TimeUnit.MILLISECONDS, 10);
+			Thread.sleep(100);
+		}
 	}
 
 	private static FileSystemReceiver getUnderlyingFileSystem() {
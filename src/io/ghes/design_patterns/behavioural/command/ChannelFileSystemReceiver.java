@@ -0,0 +1,225 @@
+package io.ghes.design_patterns.behavioural.command;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Receiver that really writes to disk through a {@link FileChannel}.
+ *
+ * Data is appended at the end of the file, either through a reusable direct
+ * {@link ByteBuffer} or, when a map window is configured, by copying it into
+ * a {@link MappedByteBuffer} that is moved forward as it fills up.
+ *
+ * A receiver is not thread safe: its commands must run one at a time, as
+ * {@link CommandBus} does for commands of the same receiver.
+ */
+public class ChannelFileSystemReceiver implements FileSystemReceiver {
+
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private final Path path;
+	private final int mapWindow;
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	private MappedByteBuffer window;
+	private long windowStart;
+	private long position;
+
+	public ChannelFileSystemReceiver(final Path path) {
+		this(path, 0);
+	}
+
+	/**
+	 * @param mapWindow size of the memory-mapped window, or 0 to write through a
+	 *                  direct buffer
+	 */
+	public ChannelFileSystemReceiver(final Path path, final int mapWindow) {
+		if (mapWindow < 0) {
+			throw new IllegalArgumentException("Map window must not be negative: " + mapWindow);
+		}
+		this.path = path;
+		this.mapWindow = mapWindow;
+	}
+
+	public Path getPath() {
+		return this.path;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return this.channel != null;
+	}
+
+	/**
+	 * @return the size of the file, including the bytes written so far
+	 */
+	public long getPosition() {
+		return this.position;
+	}
+
+	@Override
+	public void openFile() {
+		if (this.channel != null) {
+			return;
+		}
+		try {
+			this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			this.position = this.channel.size();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void writeFile() {
+		// nothing to write
+	}
+
+	@Override
+	public void writeFile(final byte[] data) {
+		this.checkOpen();
+		try {
+			if (this.mapWindow > 0) {
+				this.writeMapped(data);
+			} else {
+				this.writeBuffered(data);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes all the chunks with a single gathering write, unless a map window
+	 * is used.
+	 */
+	@Override
+	public void writeFile(final byte[][] chunks) {
+		if (this.mapWindow > 0) {
+			FileSystemReceiver.super.writeFile(chunks);
+			return;
+		}
+		this.checkOpen();
+		final ByteBuffer[] buffers = new ByteBuffer[chunks.length];
+		long remaining = 0;
+		for (int i = 0; i < chunks.length; i++) {
+			buffers[i] = ByteBuffer.wrap(chunks[i]);
+			remaining += chunks[i].length;
+		}
+		try {
+			this.channel.position(this.position);
+			while (remaining > 0) {
+				final long written = this.channel.write(buffers);
+				this.position += written;
+				remaining -= written;
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public long getFileSize() {
+		return this.position;
+	}
+
+	@Override
+	public void truncateFile(final long size) {
+		this.checkOpen();
+		try {
+			if (this.window != null) {
+				this.window.force();
+				this.window = null;
+			}
+			this.channel.truncate(size);
+			this.position = Math.min(this.position, size);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Flushes the written bytes to the storage device.
+	 */
+	public void force() {
+		this.checkOpen();
+		try {
+			if (this.window != null) {
+				this.window.force();
+			}
+			this.channel.force(false);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		if (this.channel == null) {
+			return;
+		}
+		try {
+			if (this.window != null) {
+				this.window.force();
+				this.window = null;
+				// the last window may reach past the data
+				this.channel.truncate(this.position);
+			}
+			this.channel.close();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.channel = null;
+		}
+	}
+
+	private void writeBuffered(final byte[] data) throws IOException {
+		if (this.buffer == null) {
+			this.buffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+		}
+		int offset = 0;
+		while (offset < data.length) {
+			final int length = Math.min(this.buffer.capacity(), data.length - offset);
+			this.buffer.clear();
+			this.buffer.put(data, offset, length)
+					.flip();
+			while (this.buffer.hasRemaining()) {
+				this.position += this.channel.write(this.buffer, this.position);
+			}
+			offset += length;
+		}
+	}
+
+	private void writeMapped(final byte[] data) throws IOException {
+		int offset = 0;
+		while (offset < data.length) {
+			if (this.window == null || !this.window.hasRemaining()) {
+				this.windowStart = this.position;
+				this.window = this.channel.map(MapMode.READ_WRITE, this.windowStart, this.mapWindow);
+			}
+			final int length = Math.min(this.window.remaining(), data.length - offset);
+			this.window.put(data, offset, length);
+			this.position += length;
+			offset += length;
+		}
+	}
+
+	private void checkOpen() {
+		if (this.channel == null) {
+			throw new IllegalStateException("File " + this.path + " is not open");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ChannelFileSystemReceiver [path=" + this.path + "]";
+	}
+
+}
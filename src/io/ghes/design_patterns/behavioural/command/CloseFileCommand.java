@@ -1,6 +1,6 @@
 package io.ghes.design_patterns.behavioural.command;
 
-public class CloseFileCommand implements Command {
+public class CloseFileCommand implements FileCommand, UndoableCommand {
 
 	private final FileSystemReceiver fileSystem;
 
@@ -9,8 +9,14 @@ public class CloseFileCommand implements Command {
 	}
 
 	@Override
-	public void execute() {
+	public FileSystemReceiver getReceiver() {
+		return this.fileSystem;
+	}
+
+	@Override
+	public Undo executeUndoable() {
 		this.fileSystem.closeFile();
+		return this.fileSystem::openFile;
 	}
 
 }
\ No newline at end of file
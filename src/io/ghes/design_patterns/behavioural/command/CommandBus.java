@@ -0,0 +1,166 @@
+package io.ghes.design_patterns.behavioural.command;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Asynchronous invoker: commands are queued and executed by a pool of
+ * workers, and the caller gets a future completed once the command has run.
+ *
+ * Every worker owns a bounded queue. A {@link FileCommand} always goes to the
+ * worker chosen by its receiver, so the commands of the same receiver run in
+ * submission order; other commands are spread round robin. When a queue is
+ * full, {@link #submit(Command)} blocks the producer.
+ *
+ * Workers are created by the given {@link ThreadFactory}, which can be a
+ * virtual thread factory on runtimes that support them.
+ */
+public class CommandBus implements AutoCloseable {
+
+	private static final Task POISON = new Task(null);
+
+	private final Worker[] workers;
+	private final AtomicInteger roundRobin = new AtomicInteger();
+	// submissions share the lock, close takes it alone: no task follows the poison pills
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private boolean closed;
+
+	public CommandBus(final int workers, final int capacity) {
+		this(workers, capacity, Executors.defaultThreadFactory());
+	}
+
+	public CommandBus(final int workers, final int capacity, final ThreadFactory threadFactory) {
+		if (workers <= 0 || capacity <= 0) {
+			throw new IllegalArgumentException("Workers and capacity must be positive");
+		}
+		this.workers = new Worker[workers];
+		for (int i = 0; i < workers; i++) {
+			this.workers[i] = new Worker(capacity);
+			threadFactory.newThread(this.workers[i])
+					.start();
+		}
+	}
+
+	public CompletableFuture<Void> submit(final Command command) throws InterruptedException {
+		this.lock.readLock()
+				.lockInterruptibly();
+		try {
+			if (this.closed) {
+				throw new RejectedExecutionException("Command bus is closed");
+			}
+			final Task task = new Task(command);
+			this.workerFor(command).queue.put(task);
+			return task.future;
+		} finally {
+			this.lock.readLock()
+					.unlock();
+		}
+	}
+
+	/**
+	 * Stops accepting commands and waits for the queued ones to complete; does
+	 * nothing if the bus is already closed. An interrupt does not cut it
+	 * short, the interrupt flag is set again on return.
+	 */
+	@Override
+	public void close() {
+		this.lock.writeLock()
+				.lock();
+		try {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+		} finally {
+			this.lock.writeLock()
+					.unlock();
+		}
+		boolean interrupted = false;
+		for (final Worker worker : this.workers) {
+			while (true) {
+				try {
+					worker.queue.put(POISON);
+					break;
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		for (final Worker worker : this.workers) {
+			worker.stopped.join();
+		}
+		if (interrupted) {
+			Thread.currentThread()
+					.interrupt();
+		}
+	}
+
+	private Worker workerFor(final Command command) {
+		final int index;
+		if (command instanceof FileCommand) {
+			final int hash = System.identityHashCode(((FileCommand) command).getReceiver());
+			index = (hash ^ (hash >>> 16)) & Integer.MAX_VALUE;
+		} else {
+			index = this.roundRobin.getAndIncrement() & Integer.MAX_VALUE;
+		}
+		return this.workers[index % this.workers.length];
+	}
+
+	private static final class Task {
+
+		private final Command command;
+		private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+		private Task(final Command command) {
+			this.command = command;
+		}
+
+	}
+
+	private static final class Worker implements Runnable {
+
+		private final BlockingQueue<Task> queue;
+		private final CompletableFuture<Void> stopped = new CompletableFuture<>();
+
+		private Worker(final int capacity) {
+			this.queue = new ArrayBlockingQueue<>(capacity);
+		}
+
+		@Override
+		public void run() {
+			try {
+				Task task;
+				while ((task = this.queue.take()) != POISON) {
+					try {
+						task.command.execute();
+						task.future.complete(null);
+					} catch (final Throwable e) {
+						// the worker keeps serving the other commands of its receivers
+						task.future.completeExceptionally(e);
+					}
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread()
+						.interrupt();
+			} finally {
+				// left behind when the worker is interrupted
+				Task task;
+				while ((task = this.queue.poll()) != null) {
+					if (task != POISON) {
+						task.future.completeExceptionally(new RejectedExecutionException("Command bus is closed"));
+					}
+				}
+				this.stopped.complete(null);
+			}
+		}
+
+	}
+
+}
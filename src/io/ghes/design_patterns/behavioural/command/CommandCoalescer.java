@@ -0,0 +1,132 @@
+package io.ghes.design_patterns.behavioural.command;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Pipeline stage that buffers file commands and, on {@link #flush()}, hands
+ * a shorter but equivalent sequence to the next stage.
+ *
+ * For every receiver, a close followed by an open is dropped, so the file
+ * is opened once and closed once, and all the writes in between are merged
+ * into a single {@link GatheringWriteFileCommand}. Commands of different
+ * receivers are independent, so each receiver keeps its own order; any
+ * other command flushes what is buffered before being passed on.
+ */
+public class CommandCoalescer {
+
+	private final Consumer<Command> next;
+	private final List<Command> pending = new ArrayList<>();
+
+	public CommandCoalescer(final Consumer<Command> next) {
+		this.next = next;
+	}
+
+	public void submit(final Command command) {
+		this.pending.add(command);
+	}
+
+	public void flush() {
+		final List<Command> commands = coalesce(this.pending);
+		this.pending.clear();
+		commands.forEach(this.next);
+	}
+
+	public static List<Command> coalesce(final List<Command> commands) {
+		final List<Command> result = new ArrayList<>();
+		final Map<FileSystemReceiver, Group> groups = new LinkedHashMap<>();
+		for (final Command command : commands) {
+			if (!(command instanceof FileCommand)) {
+				drain(groups, result);
+				result.add(command);
+				continue;
+			}
+			final FileSystemReceiver fs = ((FileCommand) command).getReceiver();
+			final Group group = groups.computeIfAbsent(fs, Group::new);
+			if (command instanceof OpenFileCommand) {
+				if (group.closing) {
+					// close then open again: keep the file open instead
+					group.closing = false;
+				} else if (!group.hasWrites()) {
+					group.opening = true;
+				}
+			} else if (command instanceof CloseFileCommand) {
+				group.closing = true;
+			} else if (command instanceof WriteFileCommand || command instanceof GatheringWriteFileCommand) {
+				if (group.closing) {
+					// a write after a close needs the file open: keep the original order
+					drain(groups, result);
+					groups.computeIfAbsent(fs, Group::new).add(command);
+				} else {
+					group.add(command);
+				}
+			} else {
+				drain(groups, result);
+				result.add(command);
+			}
+		}
+		drain(groups, result);
+		return result;
+	}
+
+	private static void drain(final Map<FileSystemReceiver, Group> groups, final List<Command> result) {
+		for (final Group group : groups.values()) {
+			group.emit(result);
+		}
+		groups.clear();
+	}
+
+	private static final class Group {
+
+		private final FileSystemReceiver fs;
+		private final List<byte[]> writes = new ArrayList<>();
+		private boolean opening;
+		private boolean closing;
+		private boolean plainWrite;
+
+		private Group(final FileSystemReceiver fs) {
+			this.fs = fs;
+		}
+
+		private void add(final Command write) {
+			if (write instanceof GatheringWriteFileCommand) {
+				for (final byte[] chunk : ((GatheringWriteFileCommand) write).getChunks()) {
+					this.writes.add(chunk);
+				}
+				return;
+			}
+			final byte[] payload = ((WriteFileCommand) write).getPayload();
+			if (payload == null) {
+				this.plainWrite = true;
+			} else {
+				this.writes.add(payload);
+			}
+		}
+
+		private boolean hasWrites() {
+			return this.plainWrite || !this.writes.isEmpty();
+		}
+
+		private void emit(final List<Command> result) {
+			if (this.opening) {
+				result.add(new OpenFileCommand(this.fs));
+			}
+			if (this.plainWrite) {
+				result.add(new WriteFileCommand(this.fs));
+			}
+			if (this.writes.size() == 1) {
+				result.add(new WriteFileCommand(this.fs, this.writes.get(0)));
+			} else if (!this.writes.isEmpty()) {
+				result.add(new GatheringWriteFileCommand(this.fs, this.writes.toArray(new byte[0][])));
+			}
+			if (this.closing) {
+				result.add(new CloseFileCommand(this.fs));
+			}
+		}
+
+	}
+
+}
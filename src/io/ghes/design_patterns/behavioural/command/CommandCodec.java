@@ -0,0 +1,17 @@
+package io.ghes.design_patterns.behavioural.command;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Turns commands into compact binary records and back, so that they can be
+ * stored in a {@link CommandJournal}.
+ */
+public interface CommandCodec {
+
+	void encode(Command command, DataOutput out) throws IOException;
+
+	Command decode(DataInput in) throws IOException;
+
+}
@@ -0,0 +1,103 @@
+package io.ghes.design_patterns.behavioural.command;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Undo/redo history of executed commands, kept within a memory budget.
+ *
+ * The footprint reported by every command is added up; when the total goes
+ * over the budget the oldest commands are forgotten first, so the memory used
+ * by the history stays bounded however long the session is.
+ *
+ * A history belongs to one editing session and is not thread safe.
+ */
+public class CommandHistory {
+
+	private final long budget;
+	private final Deque<Executed> undoStack = new ArrayDeque<>();
+	private final Deque<UndoableCommand> redoStack = new ArrayDeque<>();
+	private long used;
+
+	/**
+	 * @param budget maximum number of bytes retained by the history
+	 */
+	public CommandHistory(final long budget) {
+		if (budget < 0) {
+			throw new IllegalArgumentException("Budget must not be negative: " + budget);
+		}
+		this.budget = budget;
+	}
+
+	public void execute(final UndoableCommand command) {
+		final UndoableCommand.Undo undo = command.executeUndoable();
+		for (final UndoableCommand dropped : this.redoStack) {
+			this.used -= dropped.getFootprint();
+		}
+		this.redoStack.clear();
+		this.undoStack.push(new Executed(command, undo));
+		this.used += command.getFootprint();
+		this.evict();
+	}
+
+	public boolean undo() {
+		final Executed executed = this.undoStack.poll();
+		if (executed == null) {
+			return false;
+		}
+		executed.undo.undo();
+		this.redoStack.push(executed.command);
+		return true;
+	}
+
+	public boolean redo() {
+		final UndoableCommand command = this.redoStack.poll();
+		if (command == null) {
+			return false;
+		}
+		this.undoStack.push(new Executed(command, command.executeUndoable()));
+		return true;
+	}
+
+	public boolean canUndo() {
+		return !this.undoStack.isEmpty();
+	}
+
+	public boolean canRedo() {
+		return !this.redoStack.isEmpty();
+	}
+
+	public int size() {
+		return this.undoStack.size() + this.redoStack.size();
+	}
+
+	public long getUsedBytes() {
+		return this.used;
+	}
+
+	public long getBudget() {
+		return this.budget;
+	}
+
+	private void evict() {
+		while (this.used > this.budget && !this.undoStack.isEmpty()) {
+			this.used -= this.undoStack.removeLast().command.getFootprint();
+		}
+	}
+
+	/**
+	 * A command along with what reverts the execution kept in the history.
+	 */
+	private static final class Executed {
+
+		private final UndoableCommand command;
+		private final UndoableCommand.Undo undo;
+
+		private Executed(final UndoableCommand command, final UndoableCommand.Undo undo) {
+			this.command = command;
+			this.undo = undo;
+		}
+
+	}
+
+}
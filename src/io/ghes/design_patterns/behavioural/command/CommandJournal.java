@@ -0,0 +1,443 @@
+package io.ghes.design_patterns.behavioural.command;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal for commands.
+ *
+ * {@link #execute(Command)} stores the command in the journal before running
+ * it and records that it has been applied afterwards. Records go to
+ * segment files named after their first sequence number. A single writer
+ * thread takes all the records queued by concurrent callers, writes them
+ * with one gathering write and forces them to disk with one
+ * {@link FileChannel#force(boolean)}: this group commit lets many commands
+ * share the cost of a sync.
+ *
+ * When the journal is opened again after a crash, the commands that were
+ * journaled but never applied are replayed by {@link #replay()}. Segments
+ * whose commands have all been applied are deleted.
+ *
+ * Delivery is at least once: a command is marked applied only after it has
+ * run, so a crash in between runs it again on replay. A command that keeps
+ * failing on replay, e.g. a write whose file was opened by an older command
+ * already applied, can be skipped with
+ * {@link #replay(BiConsumer)}; otherwise it holds back the replay and the
+ * deletion of every later segment.
+ *
+ * Every record is laid out as: body length, CRC32 of the body, then the
+ * body made of the sequence number, the record kind and the encoded
+ * command. A torn record at the end of a segment is discarded on recovery.
+ */
+public class CommandJournal implements AutoCloseable {
+
+	private static final byte COMMAND = 1;
+	private static final byte APPLIED = 2;
+	private static final int HEADER = 4 + 4;
+	private static final int BODY_HEADER = 8 + 1;
+	private static final int MAX_BATCH = 1024;
+	private static final String SUFFIX = ".log";
+	private static final Entry POISON = new Entry(APPLIED, -1, null, null);
+
+	private final Path directory;
+	private final long segmentSize;
+	private final CommandCodec codec;
+	private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+	// only touched by the writer thread once the journal is open
+	private final NavigableSet<Long> unapplied = new TreeSet<>();
+	private final NavigableMap<Long, byte[]> recovered = new TreeMap<>();
+	private final Deque<Segment> segments = new ArrayDeque<>();
+	private final Thread writer;
+	private long nextSequence;
+	private FileChannel channel;
+	// set when a failed group could not be cut off the segment
+	private IOException broken;
+	// guarded by the queue, so that nothing is accepted after the poison pill
+	private boolean closed;
+
+	public CommandJournal(final Path directory, final long segmentSize, final CommandCodec codec) throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.codec = codec;
+		Files.createDirectories(directory);
+		this.recover();
+		this.roll();
+		this.writer = new Thread(this::writeLoop, "command-journal");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Runs again the commands that were journaled but not applied before the
+	 * journal was last closed or crashed, in their original order. If a
+	 * command throws, the replay stops there and can be called again.
+	 *
+	 * @return the number of replayed commands
+	 */
+	public int replay() throws IOException {
+		return this.replay((command, failure) -> {
+			throw failure;
+		});
+	}
+
+	/**
+	 * Same as {@link #replay()}, but a command that throws is handed to
+	 * <code>onFailure</code>, then marked applied and skipped. The handler can
+	 * rethrow to stop the replay there instead, leaving the command unapplied.
+	 *
+	 * @return the number of commands replayed without failure
+	 */
+	public int replay(final BiConsumer<Command, RuntimeException> onFailure) throws IOException {
+		int count = 0;
+		final Iterator<Map.Entry<Long, byte[]>> entries = this.recovered.entrySet()
+				.iterator();
+		while (entries.hasNext()) {
+			final Map.Entry<Long, byte[]> entry = entries.next();
+			final Command command = this.codec.decode(new DataInputStream(new ByteArrayInputStream(entry.getValue())));
+			try {
+				command.execute();
+				count++;
+			} catch (final RuntimeException e) {
+				// a rethrow leaves the command unapplied, the next replay starts from it
+				onFailure.accept(command, e);
+			}
+			entries.remove();
+			this.markApplied(entry.getKey());
+		}
+		return count;
+	}
+
+	/**
+	 * Makes the command durable, then executes it.
+	 */
+	public void execute(final Command command) {
+		final long sequence = this.append(command)
+				.join();
+		try {
+			command.execute();
+		} finally {
+			this.markApplied(sequence);
+		}
+	}
+
+	/**
+	 * @return a future completed with the sequence number of the command once
+	 *         its record has been forced to disk
+	 */
+	public CompletableFuture<Long> append(final Command command) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			this.codec.encode(command, new DataOutputStream(bytes));
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		final Entry entry = new Entry(COMMAND, -1, bytes.toByteArray(), new CompletableFuture<>());
+		this.enqueue(entry);
+		return entry.future;
+	}
+
+	/**
+	 * Records that a command has been executed. The marker is written with the
+	 * next group, nobody waits for it.
+	 */
+	public void markApplied(final long sequence) {
+		this.enqueue(new Entry(APPLIED, sequence, new byte[0], null));
+	}
+
+	/**
+	 * Writes the queued records and stops the writer. Without it, the last
+	 * markers may be lost and their commands replayed on the next start.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this.queue) {
+			// the writer may have stopped on its own already
+			if (!this.closed) {
+				this.closed = true;
+				this.queue.add(POISON);
+			}
+		}
+		try {
+			this.writer.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread()
+					.interrupt();
+		}
+		this.channel.close();
+	}
+
+	private void enqueue(final Entry entry) {
+		synchronized (this.queue) {
+			if (this.closed) {
+				throw new IllegalStateException("Journal is closed");
+			}
+			this.queue.add(entry);
+		}
+	}
+
+	private void writeLoop() {
+		final List<Entry> batch = new ArrayList<>();
+		try {
+			boolean running = true;
+			while (running) {
+				batch.clear();
+				batch.add(this.queue.take());
+				this.queue.drainTo(batch, MAX_BATCH);
+				if (batch.remove(POISON)) {
+					// enqueue() and close() share a lock, nothing follows the poison pill
+					running = false;
+				}
+				try {
+					this.writeGroup(batch);
+					for (final Entry entry : batch) {
+						if (entry.future != null) {
+							entry.future.complete(entry.sequence);
+						}
+					}
+					if (this.channel.size() >= this.segmentSize) {
+						this.roll();
+					}
+					this.deleteAppliedSegments();
+				} catch (final Throwable e) {
+					fail(batch, e);
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread()
+					.interrupt();
+		} finally {
+			// nobody would ever complete what is still queued
+			synchronized (this.queue) {
+				this.closed = true;
+				this.queue.drainTo(batch);
+			}
+			fail(batch, new IllegalStateException("Journal is closed"));
+		}
+	}
+
+	private static void fail(final List<Entry> batch, final Throwable cause) {
+		for (final Entry entry : batch) {
+			if (entry.future != null) {
+				entry.future.completeExceptionally(cause);
+			}
+		}
+	}
+
+	/**
+	 * Writes and forces the group, or leaves the segment and the sequence
+	 * numbers as they were: a failed group must neither be replayed nor hide
+	 * the groups written after it behind a torn record.
+	 */
+	private void writeGroup(final List<Entry> batch) throws IOException {
+		if (this.broken != null) {
+			throw new IOException("Journal is unusable after a failed write", this.broken);
+		}
+		final Segment segment = this.segments.getLast();
+		final long sizeBefore = this.channel.size();
+		final long sequenceBefore = this.nextSequence;
+		final long lastCommandBefore = segment.lastCommand;
+		try {
+			this.writeRecords(batch, segment);
+		} catch (final IOException | RuntimeException | Error e) {
+			this.nextSequence = sequenceBefore;
+			segment.lastCommand = lastCommandBefore;
+			try {
+				// the channel appends, the next group starts where this one did
+				this.channel.truncate(sizeBefore);
+				this.channel.force(false);
+			} catch (final IOException truncateFailed) {
+				e.addSuppressed(truncateFailed);
+				this.broken = truncateFailed;
+			}
+			throw e;
+		}
+		for (final Entry entry : batch) {
+			if (entry.kind == COMMAND) {
+				this.unapplied.add(entry.sequence);
+			} else {
+				this.unapplied.remove(entry.sequence);
+			}
+		}
+	}
+
+	private void writeRecords(final List<Entry> batch, final Segment segment) throws IOException {
+		final ByteBuffer[] records = new ByteBuffer[batch.size()];
+		for (int i = 0; i < records.length; i++) {
+			final Entry entry = batch.get(i);
+			if (entry.kind == COMMAND) {
+				entry.sequence = this.nextSequence++;
+				segment.lastCommand = entry.sequence;
+			}
+			records[i] = record(entry);
+		}
+		long remaining = 0;
+		for (final ByteBuffer record : records) {
+			remaining += record.remaining();
+		}
+		while (remaining > 0) {
+			remaining -= this.channel.write(records);
+		}
+		this.channel.force(false);
+	}
+
+	private static ByteBuffer record(final Entry entry) {
+		final ByteBuffer record = ByteBuffer.allocate(HEADER + BODY_HEADER + entry.payload.length);
+		record.putInt(BODY_HEADER + entry.payload.length)
+				.putInt(0)
+				.putLong(entry.sequence)
+				.put(entry.kind)
+				.put(entry.payload);
+		final CRC32 crc = new CRC32();
+		crc.update(record.array(), HEADER, BODY_HEADER + entry.payload.length);
+		record.putInt(4, (int) crc.getValue());
+		return record.flip();
+	}
+
+	private void roll() throws IOException {
+		if (this.channel != null) {
+			this.channel.close();
+		}
+		final Path path = this.directory.resolve(String.format("%020d", this.nextSequence) + SUFFIX);
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		// a recovered segment holding only markers keeps being written
+		if (this.segments.isEmpty() || !this.segments.getLast().path.equals(path)) {
+			this.segments.addLast(new Segment(path));
+		}
+	}
+
+	/**
+	 * A segment can go once its commands, and all the older ones, are applied.
+	 */
+	private void deleteAppliedSegments() throws IOException {
+		final long oldestUnapplied = this.unapplied.isEmpty() ? Long.MAX_VALUE : this.unapplied.first();
+		while (this.segments.size() > 1 && this.segments.getFirst().lastCommand < oldestUnapplied) {
+			Files.deleteIfExists(this.segments.removeFirst().path);
+		}
+	}
+
+	private void recover() throws IOException {
+		final List<Path> files;
+		try (Stream<Path> list = Files.list(this.directory)) {
+			files = list.filter(p -> p.getFileName()
+					.toString()
+					.endsWith(SUFFIX))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+		final Set<Long> applied = new HashSet<>();
+		for (final Path file : files) {
+			final Segment segment = new Segment(file);
+			this.readSegment(segment, applied);
+			this.segments.addLast(segment);
+		}
+		this.recovered.keySet()
+				.removeAll(applied);
+		this.unapplied.addAll(this.recovered.keySet());
+	}
+
+	private void readSegment(final Segment segment, final Set<Long> applied) throws IOException {
+		final String name = segment.path.getFileName()
+				.toString();
+		// sequence numbers are never reused, even if older segments are gone
+		final long firstSequence = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+		this.nextSequence = Math.max(this.nextSequence, firstSequence);
+		final long size = Files.size(segment.path);
+		long valid = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment.path)))) {
+			while (true) {
+				final int length = in.readInt();
+				final int checksum = in.readInt();
+				if (length < BODY_HEADER || length > size - valid - HEADER) {
+					break;
+				}
+				final byte[] body = new byte[length];
+				in.readFully(body);
+				final CRC32 crc = new CRC32();
+				crc.update(body);
+				if ((int) crc.getValue() != checksum) {
+					break;
+				}
+				final ByteBuffer buffer = ByteBuffer.wrap(body);
+				final long sequence = buffer.getLong();
+				final byte kind = buffer.get();
+				if (kind == COMMAND) {
+					final byte[] payload = new byte[buffer.remaining()];
+					buffer.get(payload);
+					this.recovered.put(sequence, payload);
+					segment.lastCommand = sequence;
+					this.nextSequence = Math.max(this.nextSequence, sequence + 1);
+				} else {
+					applied.add(sequence);
+					this.nextSequence = Math.max(this.nextSequence, sequence + 1);
+				}
+				valid += HEADER + length;
+			}
+		} catch (final EOFException e) {
+			// torn record at the end of the segment
+		}
+		if (valid < size) {
+			try (FileChannel truncate = FileChannel.open(segment.path, StandardOpenOption.WRITE)) {
+				truncate.truncate(valid);
+			}
+		}
+	}
+
+	private static final class Entry {
+
+		private final byte kind;
+		private long sequence;
+		private final byte[] payload;
+		private final CompletableFuture<Long> future;
+
+		private Entry(final byte kind, final long sequence, final byte[] payload, final CompletableFuture<Long> future) {
+			this.kind = kind;
+			this.sequence = sequence;
+			this.payload = payload;
+			this.future = future;
+		}
+
+	}
+
+	private static final class Segment {
+
+		private final Path path;
+		private long lastCommand = -1;
+
+		private Segment(final Path path) {
+			this.path = path;
+		}
+
+	}
+
+}
@@ -0,0 +1,213 @@
+package io.ghes.design_patterns.behavioural.command;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Runs delayed, periodic and prioritized commands on a hashed hierarchical
+ * timer wheel.
+ *
+ * Time is cut into ticks. The first level of the wheel has one bucket per
+ * tick, every following level has buckets as large as a whole turn of the
+ * level below. A command is dropped in the bucket of its deadline, in O(1);
+ * when a level turns, the commands of its next bucket are spread into the
+ * levels below, until they reach the first level and expire. Commands
+ * expiring on the same tick are dispatched by descending priority.
+ *
+ * Commands can be scheduled from any thread: they are pushed on a lock-free
+ * stack that the scheduler thread empties at every tick, so the wheel
+ * itself is only touched by that thread. Cancelled commands are dropped the
+ * next time their bucket is visited.
+ */
+public class CommandScheduler implements AutoCloseable {
+
+	private static final int WHEEL_BITS = 8;
+	private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+	private static final int LEVELS = 4;
+	private static final long MAX_DELTA = (1L << (WHEEL_BITS * LEVELS)) - 1;
+	private static final Comparator<ScheduledCommand> BY_PRIORITY = (a, b) -> Integer.compare(b.priority,
+			a.priority);
+
+	private final long tickNanos;
+	private final Consumer<Command> dispatcher;
+	private final ScheduledCommand[][] buckets = new ScheduledCommand[LEVELS][WHEEL_SIZE];
+	private final AtomicReference<ScheduledCommand> pending = new AtomicReference<>();
+	private final List<ScheduledCommand> expired = new ArrayList<>();
+	private final long start;
+	private final Thread thread;
+	private long currentTick;
+	private volatile boolean closed;
+
+	public CommandScheduler(final long tick, final TimeUnit unit) {
+		this(tick, unit, Command::execute);
+	}
+
+	/**
+	 * @param dispatcher runs the expired commands, e.g. on a {@link CommandBus};
+	 *                   by default they run on the scheduler thread
+	 */
+	public CommandScheduler(final long tick, final TimeUnit unit, final Consumer<Command> dispatcher) {
+		this.tickNanos = unit.toNanos(tick);
+		if (this.tickNanos <= 0) {
+			throw new IllegalArgumentException("Tick must be positive");
+		}
+		this.dispatcher = dispatcher;
+		this.start = System.nanoTime();
+		this.thread = new Thread(this::run, "command-scheduler");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	public ScheduledCommand schedule(final Command command, final long delay, final TimeUnit unit) {
+		return this.schedule(command, delay, unit, 0);
+	}
+
+	public ScheduledCommand schedule(final Command command, final long delay, final TimeUnit unit,
+			final int priority) {
+		return this.add(new ScheduledCommand(command, priority, this.deadline(delay, unit), 0));
+	}
+
+	public ScheduledCommand scheduleAtFixedRate(final Command command, final long initialDelay, final long period,
+			final TimeUnit unit, final int priority) {
+		final long periodTicks = Math.max(1, unit.toNanos(period) / this.tickNanos);
+		return this.add(new ScheduledCommand(command, priority, this.deadline(initialDelay, unit), periodTicks));
+	}
+
+	/**
+	 * Stops the scheduler; the commands not run yet are dropped. When called
+	 * by a scheduled command, returns without waiting for the scheduler
+	 * thread, which stops after the current tick.
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		if (Thread.currentThread() == this.thread) {
+			return;
+		}
+		LockSupport.unpark(this.thread);
+		try {
+			this.thread.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread()
+					.interrupt();
+		}
+	}
+
+	private long deadline(final long delay, final TimeUnit unit) {
+		final long elapsed = System.nanoTime() - this.start + unit.toNanos(delay);
+		// round up, a command never runs before its delay
+		return (elapsed + this.tickNanos - 1) / this.tickNanos;
+	}
+
+	private ScheduledCommand add(final ScheduledCommand scheduled) {
+		if (this.closed) {
+			throw new IllegalStateException("Scheduler is closed");
+		}
+		ScheduledCommand head;
+		do {
+			head = this.pending.get();
+			scheduled.nextPending = head;
+		} while (!this.pending.compareAndSet(head, scheduled));
+		return scheduled;
+	}
+
+	private void run() {
+		while (!this.closed) {
+			final long next = this.start + (this.currentTick + 1) * this.tickNanos;
+			final long wait = next - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(this, wait);
+				continue;
+			}
+			this.currentTick++;
+			this.drainPending();
+			this.cascade();
+			this.expire();
+		}
+	}
+
+	private void drainPending() {
+		ScheduledCommand scheduled = this.pending.getAndSet(null);
+		while (scheduled != null) {
+			final ScheduledCommand next = scheduled.nextPending;
+			scheduled.nextPending = null;
+			this.insert(scheduled);
+			scheduled = next;
+		}
+	}
+
+	private void insert(final ScheduledCommand scheduled) {
+		if (scheduled.cancelled) {
+			return;
+		}
+		final long delta = Math.min(Math.max(0, scheduled.deadlineTick - this.currentTick), MAX_DELTA);
+		final long tick = this.currentTick + delta;
+		int level = 0;
+		while (delta >= 1L << (WHEEL_BITS * (level + 1))) {
+			level++;
+		}
+		final int index = (int) (tick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+		scheduled.next = this.buckets[level][index];
+		this.buckets[level][index] = scheduled;
+	}
+
+	/**
+	 * When the lower levels have completed a turn, the matching bucket of the
+	 * upper level is spread below; upper levels go first so that what they
+	 * spread is spread again if needed.
+	 */
+	private void cascade() {
+		for (int level = LEVELS - 1; level > 0; level--) {
+			if ((this.currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+				continue;
+			}
+			final int index = (int) (this.currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+			ScheduledCommand scheduled = this.buckets[level][index];
+			this.buckets[level][index] = null;
+			while (scheduled != null) {
+				final ScheduledCommand next = scheduled.next;
+				this.insert(scheduled);
+				scheduled = next;
+			}
+		}
+	}
+
+	private void expire() {
+		final int index = (int) this.currentTick & WHEEL_MASK;
+		ScheduledCommand scheduled = this.buckets[0][index];
+		this.buckets[0][index] = null;
+		while (scheduled != null) {
+			final ScheduledCommand next = scheduled.next;
+			scheduled.next = null;
+			if (!scheduled.cancelled) {
+				this.expired.add(scheduled);
+			}
+			scheduled = next;
+		}
+		if (this.expired.isEmpty()) {
+			return;
+		}
+		this.expired.sort(BY_PRIORITY);
+		for (final ScheduledCommand run : this.expired) {
+			try {
+				this.dispatcher.accept(run.command);
+			} catch (final Throwable e) {
+				// a failing periodic command is not run again, the others still are
+				run.cancel();
+			}
+			if (run.isPeriodic() && !run.cancelled) {
+				// a late run does not pile up missed ones
+				run.deadlineTick = Math.max(run.deadlineTick + run.periodTicks, this.currentTick + 1);
+				this.insert(run);
+			}
+		}
+		this.expired.clear();
+	}
+
+}
@@ -0,0 +1,10 @@
+package io.ghes.design_patterns.behavioural.command;
+
+/**
+ * A command acting on a single {@link FileSystemReceiver}.
+ */
+public interface FileCommand extends Command {
+
+	FileSystemReceiver getReceiver();
+
+}
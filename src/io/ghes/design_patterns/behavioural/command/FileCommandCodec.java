@@ -0,0 +1,103 @@
+package io.ghes.design_patterns.behavioural.command;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Codec for the open, write and close file commands.
+ *
+ * Receivers cannot be serialized, so every receiver is registered under a
+ * name: the record stores a one byte command type, the receiver name and,
+ * for writes, the payload.
+ */
+public class FileCommandCodec implements CommandCodec {
+
+	private static final byte OPEN = 1;
+	private static final byte WRITE = 2;
+	private static final byte CLOSE = 3;
+	private static final byte GATHERING_WRITE = 4;
+
+	private final Map<String, FileSystemReceiver> receivers = new ConcurrentHashMap<>();
+	private final Map<FileSystemReceiver, String> names = new IdentityHashMap<>();
+
+	public synchronized void register(final String name, final FileSystemReceiver fs) {
+		this.receivers.put(name, fs);
+		this.names.put(fs, name);
+	}
+
+	@Override
+	public void encode(final Command command, final DataOutput out) throws IOException {
+		if (command instanceof OpenFileCommand) {
+			out.writeByte(OPEN);
+		} else if (command instanceof WriteFileCommand) {
+			out.writeByte(WRITE);
+		} else if (command instanceof CloseFileCommand) {
+			out.writeByte(CLOSE);
+		} else if (command instanceof GatheringWriteFileCommand) {
+			out.writeByte(GATHERING_WRITE);
+		} else {
+			throw new IllegalArgumentException("Unsupported command: " + command);
+		}
+		out.writeUTF(this.nameOf(((FileCommand) command).getReceiver()));
+		if (command instanceof WriteFileCommand) {
+			final byte[] payload = ((WriteFileCommand) command).getPayload();
+			out.writeInt(payload == null ? -1 : payload.length);
+			if (payload != null) {
+				out.write(payload);
+			}
+		} else if (command instanceof GatheringWriteFileCommand) {
+			final byte[][] chunks = ((GatheringWriteFileCommand) command).getChunks();
+			out.writeInt(chunks.length);
+			for (final byte[] chunk : chunks) {
+				out.writeInt(chunk.length);
+				out.write(chunk);
+			}
+		}
+	}
+
+	@Override
+	public Command decode(final DataInput in) throws IOException {
+		final byte type = in.readByte();
+		final String name = in.readUTF();
+		final FileSystemReceiver fs = this.receivers.get(name);
+		if (fs == null) {
+			throw new IOException("Unknown receiver: " + name);
+		}
+		switch (type) {
+		case OPEN:
+			return new OpenFileCommand(fs);
+		case WRITE:
+			final int length = in.readInt();
+			if (length < 0) {
+				return new WriteFileCommand(fs);
+			}
+			final byte[] payload = new byte[length];
+			in.readFully(payload);
+			return new WriteFileCommand(fs, payload);
+		case CLOSE:
+			return new CloseFileCommand(fs);
+		case GATHERING_WRITE:
+			final byte[][] chunks = new byte[in.readInt()][];
+			for (int i = 0; i < chunks.length; i++) {
+				chunks[i] = new byte[in.readInt()];
+				in.readFully(chunks[i]);
+			}
+			return new GatheringWriteFileCommand(fs, chunks);
+		default:
+			throw new IOException("Unknown command type: " + type);
+		}
+	}
+
+	private synchronized String nameOf(final FileSystemReceiver fs) {
+		final String name = this.names.get(fs);
+		if (name == null) {
+			throw new IllegalArgumentException("Receiver not registered: " + fs);
+		}
+		return name;
+	}
+
+}
@@ -6,6 +6,45 @@ public interface FileSystemReceiver {
 
 	void writeFile();
 
+	/**
+	 * Writes the given bytes; receivers that do not store data simply
+	 * perform a plain {@link #writeFile()}.
+	 */
+	default void writeFile(final byte[] data) {
+		this.writeFile();
+	}
+
+	/**
+	 * Writes several chunks at once, in order.
+	 */
+	default void writeFile(final byte[][] chunks) {
+		for (final byte[] chunk : chunks) {
+			this.writeFile(chunk);
+		}
+	}
+
 	void closeFile();
 
+	/**
+	 * @return whether the file is open; receivers that keep no state always
+	 *         report it closed
+	 */
+	default boolean isOpen() {
+		return false;
+	}
+
+	/**
+	 * @return the current length of the file, so that a write can be undone
+	 */
+	default long getFileSize() {
+		return 0;
+	}
+
+	/**
+	 * Cuts the file back to the given length, dropping what was written after.
+	 */
+	default void truncateFile(final long size) {
+		// nothing stored, nothing to drop
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package io.ghes.design_patterns.behavioural.command;
+
+/**
+ * Writes several chunks with a single vectored write, see
+ * {@link FileSystemReceiver#writeFile(byte[][])}.
+ */
+public class GatheringWriteFileCommand implements FileCommand, UndoableCommand {
+
+	private final FileSystemReceiver fileSystem;
+	private final byte[][] chunks;
+
+	public GatheringWriteFileCommand(final FileSystemReceiver fs, final byte[][] chunks) {
+		this.fileSystem = fs;
+		this.chunks = chunks;
+	}
+
+	@Override
+	public FileSystemReceiver getReceiver() {
+		return this.fileSystem;
+	}
+
+	public byte[][] getChunks() {
+		return this.chunks;
+	}
+
+	@Override
+	public Undo executeUndoable() {
+		final long sizeBefore = this.fileSystem.getFileSize();
+		this.fileSystem.writeFile(this.chunks);
+		return () -> this.fileSystem.truncateFile(sizeBefore);
+	}
+
+	@Override
+	public long getFootprint() {
+		// the chunks are kept to redo the write
+		long footprint = BASE_FOOTPRINT + Long.BYTES;
+		for (final byte[] chunk : this.chunks) {
+			footprint += BASE_FOOTPRINT / 2 + chunk.length;
+		}
+		return footprint;
+	}
+
+}
@@ -1,6 +1,6 @@
 package io.ghes.design_patterns.behavioural.command;
 
-public class OpenFileCommand implements Command {
+public class OpenFileCommand implements FileCommand, UndoableCommand {
 
 	private final FileSystemReceiver fileSystem;
 
@@ -9,9 +9,17 @@ public class OpenFileCommand implements Command {
 	}
 
 	@Override
-	public void execute() {
+	public FileSystemReceiver getReceiver() {
+		return this.fileSystem;
+	}
+
+	@Override
+	public Undo executeUndoable() {
+		final boolean wasOpen = this.fileSystem.isOpen();
 		// open command is forwarding request to openFile method
 		this.fileSystem.openFile();
+		// a file that was already open is left open
+		return wasOpen ? Undo.NOTHING : this.fileSystem::closeFile;
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package io.ghes.design_patterns.behavioural.command;
+
+/**
+ * Handle of a command scheduled on a {@link CommandScheduler}.
+ *
+ * The handle is also the node linked into the timer wheel, so it is the only
+ * object created per scheduled command, and periodic commands reuse it for
+ * every run.
+ */
+public final class ScheduledCommand {
+
+	final Command command;
+	final int priority;
+	final long periodTicks;
+	long deadlineTick;
+	volatile boolean cancelled;
+
+	// link of the wheel bucket, only used by the scheduler thread
+	ScheduledCommand next;
+	// link of the stack of commands waiting to enter the wheel
+	ScheduledCommand nextPending;
+
+	ScheduledCommand(final Command command, final int priority, final long deadlineTick, final long periodTicks) {
+		this.command = command;
+		this.priority = priority;
+		this.deadlineTick = deadlineTick;
+		this.periodTicks = periodTicks;
+	}
+
+	public Command getCommand() {
+		return this.command;
+	}
+
+	public int getPriority() {
+		return this.priority;
+	}
+
+	public boolean isPeriodic() {
+		return this.periodTicks > 0;
+	}
+
+	/**
+	 * Prevents any further run of the command.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+}
@@ -0,0 +1,51 @@
+package io.ghes.design_patterns.behavioural.command;
+
+/**
+ * A command that can be reverted once executed.
+ *
+ * Instead of copying the state it changes, a command only keeps the
+ * inverse operation, e.g. the length to truncate the file back to. That
+ * inverse is returned by every execution, so the same command can be
+ * executed several times and each execution undone on its own.
+ */
+public interface UndoableCommand extends Command {
+
+	/**
+	 * Rough size of an object header plus a reference or two.
+	 */
+	int BASE_FOOTPRINT = 32;
+
+	/**
+	 * Executes the command.
+	 *
+	 * @return what reverts this execution
+	 */
+	Undo executeUndoable();
+
+	@Override
+	default void execute() {
+		this.executeUndoable();
+	}
+
+	/**
+	 * @return an estimate of the bytes retained while the command is kept in
+	 *         a {@link CommandHistory}, its undo record included
+	 */
+	default long getFootprint() {
+		return BASE_FOOTPRINT;
+	}
+
+	/**
+	 * Reverts one execution of a command.
+	 */
+	@FunctionalInterface
+	interface Undo {
+
+		Undo NOTHING = () -> {
+		};
+
+		void undo();
+
+	}
+
+}
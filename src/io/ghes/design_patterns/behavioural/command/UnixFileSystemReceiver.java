@@ -17,4 +17,9 @@ public class UnixFileSystemReceiver implements FileSystemReceiver {
 		System.out.println("Closing file in unix OS");
 	}
 
+	@Override
+	public void truncateFile(final long size) {
+		System.out.println("Truncating file in unix OS");
+	}
+
 }
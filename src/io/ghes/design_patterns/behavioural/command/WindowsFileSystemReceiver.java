@@ -18,4 +18,9 @@ public class WindowsFileSystemReceiver implements FileSystemReceiver {
 		System.out.println("Closing file in Windows OS");
 	}
 
+	@Override
+	public void truncateFile(final long size) {
+		System.out.println("Truncating file in Windows OS");
+	}
+
 }
@@ -1,16 +1,43 @@
 package io.ghes.design_patterns.behavioural.command;
 
-public class WriteFileCommand implements Command {
+public class WriteFileCommand implements FileCommand, UndoableCommand {
 
 	private final FileSystemReceiver fileSystem;
+	private final byte[] payload;
 
 	public WriteFileCommand(final FileSystemReceiver fs) {
+		this(fs, null);
+	}
+
+	public WriteFileCommand(final FileSystemReceiver fs, final byte[] payload) {
 		this.fileSystem = fs;
+		this.payload = payload;
+	}
+
+	@Override
+	public FileSystemReceiver getReceiver() {
+		return this.fileSystem;
+	}
+
+	public byte[] getPayload() {
+		return this.payload;
+	}
+
+	@Override
+	public Undo executeUndoable() {
+		final long sizeBefore = this.fileSystem.getFileSize();
+		if (this.payload == null) {
+			this.fileSystem.writeFile();
+		} else {
+			this.fileSystem.writeFile(this.payload);
+		}
+		return () -> this.fileSystem.truncateFile(sizeBefore);
 	}
 
 	@Override
-	public void execute() {
-		this.fileSystem.writeFile();
+	public long getFootprint() {
+		// the payload is kept to redo the write, the size before it to undo it
+		return BASE_FOOTPRINT + Long.BYTES + (this.payload == null ? 0 : this.payload.length);
 	}
 
 }
\ No newline at end of file
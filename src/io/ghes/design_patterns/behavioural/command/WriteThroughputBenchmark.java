@@ -0,0 +1,48 @@
+package io.ghes.design_patterns.behavioural.command;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Measures the write throughput of {@link ChannelFileSystemReceiver} when
+ * driven through the command layer, with a direct buffer and with a
+ * memory-mapped window.
+ */
+public class WriteThroughputBenchmark {
+
+	private static final int PAYLOAD_SIZE = 64 * 1024;
+	private static final int WRITES = 2048;
+	private static final int MAP_WINDOW = 16 * 1024 * 1024;
+
+	public static void main(final String[] args) throws IOException {
+		final byte[] payload = new byte[PAYLOAD_SIZE];
+		Arrays.fill(payload, (byte) 'x');
+
+		run("direct buffer", payload, 0);
+		run("mapped window", payload, MAP_WINDOW);
+	}
+
+	private static void run(final String name, final byte[] payload, final int mapWindow) throws IOException {
+		final Path file = Files.createTempFile("command-", ".bin");
+		try {
+			final ChannelFileSystemReceiver fs = new ChannelFileSystemReceiver(file, mapWindow);
+			final WriteFileCommand write = new WriteFileCommand(fs, payload);
+			final long start = System.nanoTime();
+			new OpenFileCommand(fs).execute();
+			for (int i = 0; i < WRITES; i++) {
+				write.execute();
+			}
+			fs.force();
+			new CloseFileCommand(fs).execute();
+			final double seconds = (System.nanoTime() - start) / 1e9;
+			final double megabytes = Files.size(file) / (1024.0 * 1024.0);
+			System.out.printf("%-14s %8.1f MB in %6.3f s: %8.1f MB/s%n", name, megabytes, seconds,
+					megabytes / seconds);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}
@@ -1,5 +1,7 @@
 package io.ghes.design_patterns.behavioural.iterator;
 
+import java.util.stream.Collectors;
+
 public class Application {
 
 	public static void main(final String[] args) {
@@ -28,6 +30,43 @@ public class Application {
 			final Podcast p = allIterator.next();
 			System.out.println(p.toString());
 		}
+		System.out.println("------");
+		System.out.println(podcasts.parallelStream(Topic.TECH)
+				.map(Podcast::getAuthor)
+				.collect(Collectors.joining(", ")));
+		System.out.println("------");
+		final PodcastCollection catalog = new PodcastCollectionConcurrent();
+		final Podcast mario = new Podcast("Mario Rossi", Topic.NATURE);
+		catalog.addPodcast(mario);
+		catalog.addPodcast(new Podcast("John Doe", Topic.TECH));
+		final PodcastIterator snapshotIterator = catalog.iterator(Topic.ALL);
+		// the open iterator keeps seeing the catalog as it was
+		catalog.removePodcast(mario);
+		catalog.addPodcast(new Podcast("Giuseppe Verdi", Topic.TECH));
+		while (snapshotIterator.hasNext()) {
+			System.out.println(snapshotIterator.next()
+					.toString());
+		}
+		System.out.println("------");
+		// one page per call, the token is all the caller keeps between pages
+		final Podcast[] page = new Podcast[1];
+		String token = PodcastCursor.START.toString();
+		int count;
+		do {
+			final ResumablePodcastIterator pageIterator = podcasts.iterator(Topic.TECH, PodcastCursor.parse(token));
+			count = pageIterator.nextBatch(page);
+			for (int i = 0; i < count; i++) {
+				System.out.println(token + ": " + page[i].toString());
+			}
+			token = pageIterator.cursor()
+					.toString();
+		} while (count == page.length);
+		System.out.println("------");
+		final PodcastIterator searchIterator = podcasts.iterator("G", Topic.ALL);
+		while (searchIterator.hasNext()) {
+			System.out.println(searchIterator.next()
+					.toString());
+		}
 
 	}
 
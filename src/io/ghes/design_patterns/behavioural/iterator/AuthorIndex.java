@@ -0,0 +1,92 @@
+package io.ghes.design_patterns.behavioural.iterator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Podcasts grouped by author, with the authors kept sorted, so that the
+ * authors starting with a prefix are found in O(log n) and are next to each
+ * other.
+ */
+final class AuthorIndex {
+
+	// podcasts without author come first and match no prefix
+	private final TreeMap<String, List<Podcast>> byAuthor = new TreeMap<>(
+			Comparator.nullsFirst(Comparator.naturalOrder()));
+
+	void add(final Podcast podcast) {
+		this.byAuthor.computeIfAbsent(podcast.getAuthor(), a -> new ArrayList<>(1))
+				.add(podcast);
+	}
+
+	void remove(final Podcast podcast) {
+		final List<Podcast> podcasts = this.byAuthor.get(podcast.getAuthor());
+		if (podcasts != null && podcasts.remove(podcast) && podcasts.isEmpty()) {
+			this.byAuthor.remove(podcast.getAuthor());
+		}
+	}
+
+	/**
+	 * @return the podcasts of the topic whose author starts with the prefix,
+	 *         sorted by author
+	 */
+	PodcastIterator iterator(final String authorPrefix, final Topic topic) {
+		return new PrefixIterator(this.byAuthor.tailMap(authorPrefix, true)
+				.entrySet()
+				.iterator(), authorPrefix, topic);
+	}
+
+	private static final class PrefixIterator implements PodcastIterator {
+
+		private final Iterator<Map.Entry<String, List<Podcast>>> authors;
+		private final String prefix;
+		private final Topic topic;
+		private List<Podcast> podcasts = List.of();
+		private int position;
+		private boolean done;
+
+		private PrefixIterator(final Iterator<Map.Entry<String, List<Podcast>>> authors, final String prefix,
+				final Topic topic) {
+			this.authors = authors;
+			this.prefix = prefix;
+			this.topic = topic;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (true) {
+				while (this.position < this.podcasts.size()) {
+					if (this.topic.equals(Topic.ALL) || this.podcasts.get(this.position)
+							.getTopic() == this.topic) {
+						return true;
+					}
+					this.position++;
+				}
+				if (this.done || !this.authors.hasNext()) {
+					return false;
+				}
+				final Map.Entry<String, List<Podcast>> next = this.authors.next();
+				// authors are sorted: the first one without the prefix ends the scan
+				if (!next.getKey()
+						.startsWith(this.prefix)) {
+					this.done = true;
+					return false;
+				}
+				this.podcasts = next.getValue();
+				this.position = 0;
+			}
+		}
+
+		@Override
+		public Podcast next() {
+			this.hasNext();
+			return this.podcasts.get(this.position++);
+		}
+
+	}
+
+}
@@ -0,0 +1,63 @@
+package io.ghes.design_patterns.behavioural.iterator;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Spliterator over a range of indexes, each mapped to a podcast.
+ *
+ * The range is always split in two halves of the same size, and the exact
+ * size of both halves is known, so parallel streams get balanced tasks.
+ */
+final class IndexedSpliterator implements Spliterator<Podcast> {
+
+	private final IntFunction<Podcast> podcastAt;
+	private int from;
+	private final int to;
+
+	IndexedSpliterator(final IntFunction<Podcast> podcastAt, final int from, final int to) {
+		this.podcastAt = podcastAt;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	public boolean tryAdvance(final Consumer<? super Podcast> action) {
+		if (this.from >= this.to) {
+			return false;
+		}
+		action.accept(this.podcastAt.apply(this.from++));
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(final Consumer<? super Podcast> action) {
+		for (int i = this.from; i < this.to; i++) {
+			action.accept(this.podcastAt.apply(i));
+		}
+		this.from = this.to;
+	}
+
+	@Override
+	public Spliterator<Podcast> trySplit() {
+		final int middle = (this.from + this.to) >>> 1;
+		if (middle <= this.from) {
+			return null;
+		}
+		final Spliterator<Podcast> prefix = new IndexedSpliterator(this.podcastAt, this.from, middle);
+		this.from = middle;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return this.to - this.from;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED | NONNULL;
+	}
+
+}
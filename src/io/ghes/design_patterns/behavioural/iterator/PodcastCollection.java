@@ -1,5 +1,11 @@
 package io.ghes.design_patterns.behavioural.iterator;
 
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 public interface PodcastCollection {
 
 	public void addPodcast(Podcast podcast);
@@ -8,4 +14,109 @@ public interface PodcastCollection {
 
 	public PodcastIterator iterator(Topic topic);
 
+	/**
+	 * Podcasts of the topic whose author starts with the given prefix.
+	 *
+	 * By default the whole topic is walked and every author compared;
+	 * collections with an author index should override it.
+	 */
+	public default PodcastIterator iterator(final String authorPrefix, final Topic topic) {
+		final PodcastIterator podcasts = this.iterator(topic);
+		return new PodcastIterator() {
+
+			private Podcast next;
+
+			@Override
+			public boolean hasNext() {
+				while (this.next == null && podcasts.hasNext()) {
+					final Podcast podcast = podcasts.next();
+					if (podcast.getAuthor() != null && podcast.getAuthor()
+							.startsWith(authorPrefix)) {
+						this.next = podcast;
+					}
+				}
+				return this.next != null;
+			}
+
+			@Override
+			public Podcast next() {
+				this.hasNext();
+				final Podcast podcast = this.next;
+				this.next = null;
+				return podcast;
+			}
+
+		};
+	}
+
+	/**
+	 * Resumes a scan of the topic where the cursor, taken from an iterator of
+	 * the same topic, says it stopped.
+	 *
+	 * By default the podcasts already returned are skipped one by one;
+	 * collections that can seek should override it.
+	 */
+	public default ResumablePodcastIterator iterator(final Topic topic, final PodcastCursor cursor) {
+		final PodcastIterator podcasts = this.iterator(topic);
+		long skipped = 0;
+		while (skipped < cursor.getPosition() && podcasts.hasNext()) {
+			podcasts.next();
+			skipped++;
+		}
+		final long start = skipped;
+		return new ResumablePodcastIterator() {
+
+			private long position = start;
+
+			@Override
+			public boolean hasNext() {
+				return podcasts.hasNext();
+			}
+
+			@Override
+			public Podcast next() {
+				this.position++;
+				return podcasts.next();
+			}
+
+			@Override
+			public PodcastCursor cursor() {
+				return new PodcastCursor(this.position);
+			}
+
+		};
+	}
+
+	/**
+	 * By default the spliterator walks {@link #iterator(Topic)} and splits
+	 * poorly; collections that know their size should override it.
+	 */
+	public default Spliterator<Podcast> spliterator(final Topic topic) {
+		final PodcastIterator podcasts = this.iterator(topic);
+		return Spliterators.spliteratorUnknownSize(new Iterator<Podcast>() {
+
+			@Override
+			public boolean hasNext() {
+				return podcasts.hasNext();
+			}
+
+			@Override
+			public Podcast next() {
+				return podcasts.next();
+			}
+
+		}, Spliterator.ORDERED | Spliterator.NONNULL);
+	}
+
+	public default Stream<Podcast> stream(final Topic topic) {
+		return StreamSupport.stream(this.spliterator(topic), false);
+	}
+
+	/**
+	 * Same as {@link #stream(Topic)}, but run on the common fork-join pool.
+	 */
+	public default Stream<Podcast> parallelStream(final Topic topic) {
+		return StreamSupport.stream(this.spliterator(topic), true);
+	}
+
 }
@@ -0,0 +1,154 @@
+package io.ghes.design_patterns.behavioural.iterator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Spliterator;
+
+/**
+ * Compact collection for very large catalogs.
+ *
+ * Podcasts are not kept as objects: topics are stored in a byte column and
+ * authors in an int column of ids into a dictionary holding every distinct
+ * author once. The {@link Podcast} returned by the iterators is a view built
+ * on demand, changing it does not change the collection.
+ *
+ * Podcasts are removed by value: the first one with the same author and
+ * topic goes.
+ */
+public class PodcastCollectionColumnar implements PodcastCollection {
+
+	private static final Topic[] TOPICS = Topic.values();
+
+	private byte[] topics = new byte[16];
+	private int[] authorIds = new int[16];
+	private int size;
+	private String[] authors = new String[16];
+	private final Map<String, Integer> authorDictionary = new HashMap<>();
+	private final TopicIndex topicIndex = new TopicIndex();
+
+	@Override
+	public void addPodcast(final Podcast podcast) {
+		if (this.size == this.topics.length) {
+			this.topics = Arrays.copyOf(this.topics, this.size * 2);
+			this.authorIds = Arrays.copyOf(this.authorIds, this.size * 2);
+		}
+		this.topicIndex.add(podcast.getTopic(), this.size);
+		this.topics[this.size] = (byte) podcast.getTopic()
+				.ordinal();
+		this.authorIds[this.size] = this.authorId(podcast.getAuthor());
+		this.size++;
+	}
+
+	@Override
+	public void removePodcast(final Podcast podcast) {
+		final Integer authorId = this.authorDictionary.get(podcast.getAuthor());
+		if (authorId == null) {
+			return;
+		}
+		final byte topic = (byte) podcast.getTopic()
+				.ordinal();
+		for (int i = 0; i < this.size; i++) {
+			if (this.authorIds[i] == authorId && this.topics[i] == topic) {
+				System.arraycopy(this.topics, i + 1, this.topics, i, this.size - i - 1);
+				System.arraycopy(this.authorIds, i + 1, this.authorIds, i, this.size - i - 1);
+				this.size--;
+				this.topicIndex.remove(podcast.getTopic(), i);
+				return;
+			}
+		}
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the number of distinct authors in the dictionary
+	 */
+	public int getAuthorCount() {
+		return this.authorDictionary.size();
+	}
+
+	@Override
+	public PodcastIterator iterator(final Topic topic) {
+		return new ColumnarIterator(topic, 0);
+	}
+
+	/**
+	 * Seeks the row in the cursor through the topic index. Removing podcasts
+	 * before that row between two pages shifts the scan.
+	 */
+	@Override
+	public ResumablePodcastIterator iterator(final Topic topic, final PodcastCursor cursor) {
+		return new ColumnarIterator(topic, (int) Math.min(cursor.getPosition(), this.size));
+	}
+
+	@Override
+	public Spliterator<Podcast> spliterator(final Topic topic) {
+		if (topic.equals(Topic.ALL)) {
+			return new IndexedSpliterator(this::view, 0, this.size);
+		}
+		return new IndexedSpliterator(i -> this.view(this.topicIndex.get(topic, i)), 0,
+				this.topicIndex.size(topic));
+	}
+
+	Podcast view(final int row) {
+		return new Podcast(this.authors[this.authorIds[row]], TOPICS[this.topics[row]]);
+	}
+
+	private int authorId(final String author) {
+		final Integer id = this.authorDictionary.get(author);
+		if (id != null) {
+			return id;
+		}
+		final int newId = this.authorDictionary.size();
+		if (newId == this.authors.length) {
+			this.authors = Arrays.copyOf(this.authors, newId * 2);
+		}
+		this.authors[newId] = author;
+		this.authorDictionary.put(author, newId);
+		return newId;
+	}
+
+	private class ColumnarIterator implements ResumablePodcastIterator {
+
+		private final Topic topic;
+		private int position;
+
+		private ColumnarIterator(final Topic topic, final int startRow) {
+			this.topic = topic;
+			this.position = topic.equals(Topic.ALL) ? startRow
+					: PodcastCollectionColumnar.this.topicIndex.indexOf(topic, startRow);
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.topic.equals(Topic.ALL)) {
+				return this.position < PodcastCollectionColumnar.this.size;
+			}
+			return this.position < PodcastCollectionColumnar.this.topicIndex.size(this.topic);
+		}
+
+		@Override
+		public Podcast next() {
+			final int row = this.topic.equals(Topic.ALL) ? this.position
+					: PodcastCollectionColumnar.this.topicIndex.get(this.topic, this.position);
+			this.position++;
+			return PodcastCollectionColumnar.this.view(row);
+		}
+
+		@Override
+		public PodcastCursor cursor() {
+			if (this.topic.equals(Topic.ALL)) {
+				return new PodcastCursor(this.position);
+			}
+			if (!this.hasNext()) {
+				return new PodcastCursor(PodcastCollectionColumnar.this.size);
+			}
+			return new PodcastCursor(PodcastCollectionColumnar.this.topicIndex.get(this.topic, this.position));
+		}
+
+	}
+
+}
@@ -0,0 +1,339 @@
+package io.ghes.design_patterns.behavioural.iterator;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Podcast collection that can be changed while many threads iterate it.
+ *
+ * Podcasts live in persistent treaps ordered by insertion: one for the
+ * whole catalog and one per topic. A change copies only the O(log n) nodes
+ * on its path and publishes a new immutable snapshot, so every iterator
+ * walks the catalog as it was when the iterator was created, readers never
+ * wait and removals cost O(log n). Writers are serialized among themselves.
+ */
+public class PodcastCollectionConcurrent implements PodcastCollection {
+
+	private static final Topic[] TOPICS = Topic.values();
+
+	private volatile Snapshot snapshot = new Snapshot(null, new Node[TOPICS.length], 0);
+	// insertion keys of every podcast still in the collection, guarded by this
+	private final Map<Podcast, Deque<Long>> keys = new IdentityHashMap<>();
+	private long nextKey;
+
+	@Override
+	public synchronized void addPodcast(final Podcast podcast) {
+		final long key = this.nextKey++;
+		this.keys.computeIfAbsent(podcast, p -> new ArrayDeque<>())
+				.addLast(key);
+		final Snapshot current = this.snapshot;
+		final Node[] byTopic = current.byTopic.clone();
+		final int topic = podcast.getTopic()
+				.ordinal();
+		byTopic[topic] = Node.insert(byTopic[topic], key, podcast);
+		this.snapshot = new Snapshot(Node.insert(current.all, key, podcast), byTopic, this.nextKey);
+	}
+
+	@Override
+	public synchronized void removePodcast(final Podcast podcast) {
+		final Deque<Long> podcastKeys = this.keys.get(podcast);
+		if (podcastKeys == null) {
+			return;
+		}
+		final long key = podcastKeys.removeFirst();
+		if (podcastKeys.isEmpty()) {
+			this.keys.remove(podcast);
+		}
+		final Snapshot current = this.snapshot;
+		final Node[] byTopic = current.byTopic.clone();
+		final int topic = podcast.getTopic()
+				.ordinal();
+		byTopic[topic] = Node.delete(byTopic[topic], key);
+		this.snapshot = new Snapshot(Node.delete(current.all, key), byTopic, this.nextKey);
+	}
+
+	public int size() {
+		return Node.size(this.snapshot.all);
+	}
+
+	@Override
+	public PodcastIterator iterator(final Topic topic) {
+		final Snapshot current = this.snapshot;
+		return new TreeIterator(TreeWalk.atRank(current.root(topic), 0), current.nextKey);
+	}
+
+	/**
+	 * Resumes at the first podcast added after the one the cursor stopped at,
+	 * in O(log n) and unaffected by the changes made in between.
+	 */
+	@Override
+	public ResumablePodcastIterator iterator(final Topic topic, final PodcastCursor cursor) {
+		final Snapshot current = this.snapshot;
+		return new TreeIterator(TreeWalk.atKey(current.root(topic), cursor.getPosition()), current.nextKey);
+	}
+
+	@Override
+	public Spliterator<Podcast> spliterator(final Topic topic) {
+		final Node root = this.snapshot.root(topic);
+		return new TreeSpliterator(root, 0, Node.size(root));
+	}
+
+	private static final class Snapshot {
+
+		private final Node all;
+		private final Node[] byTopic;
+		private final long nextKey;
+
+		private Snapshot(final Node all, final Node[] byTopic, final long nextKey) {
+			this.all = all;
+			this.byTopic = byTopic;
+			this.nextKey = nextKey;
+		}
+
+		private Node root(final Topic topic) {
+			return topic.equals(Topic.ALL) ? this.all : this.byTopic[topic.ordinal()];
+		}
+
+	}
+
+	/**
+	 * Immutable treap node: ordered by key, heap-ordered by a priority derived
+	 * from the key, and aware of the size of its subtree.
+	 */
+	static final class Node {
+
+		final long key;
+		final Podcast podcast;
+		final Node left;
+		final Node right;
+		final int size;
+
+		private Node(final long key, final Podcast podcast, final Node left, final Node right) {
+			this.key = key;
+			this.podcast = podcast;
+			this.left = left;
+			this.right = right;
+			this.size = 1 + size(left) + size(right);
+		}
+
+		static int size(final Node node) {
+			return node == null ? 0 : node.size;
+		}
+
+		private long priority() {
+			long h = this.key * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 32;
+			return h;
+		}
+
+		private Node with(final Node left, final Node right) {
+			return new Node(this.key, this.podcast, left, right);
+		}
+
+		static Node insert(final Node root, final long key, final Podcast podcast) {
+			final Node node = new Node(key, podcast, null, null);
+			final Node[] parts = split(root, key);
+			return merge(merge(parts[0], node), parts[1]);
+		}
+
+		static Node delete(final Node root, final long key) {
+			if (root == null) {
+				return null;
+			}
+			if (key < root.key) {
+				return root.with(delete(root.left, key), root.right);
+			}
+			if (key > root.key) {
+				return root.with(root.left, delete(root.right, key));
+			}
+			return merge(root.left, root.right);
+		}
+
+		/**
+		 * @return the nodes with a key lower than the given one, and the others
+		 */
+		private static Node[] split(final Node root, final long key) {
+			if (root == null) {
+				return new Node[2];
+			}
+			if (root.key < key) {
+				final Node[] parts = split(root.right, key);
+				parts[0] = root.with(root.left, parts[0]);
+				return parts;
+			}
+			final Node[] parts = split(root.left, key);
+			parts[1] = root.with(parts[1], root.right);
+			return parts;
+		}
+
+		/**
+		 * Merges two treaps, every key of the first being lower.
+		 */
+		private static Node merge(final Node low, final Node high) {
+			if (low == null) {
+				return high;
+			}
+			if (high == null) {
+				return low;
+			}
+			if (low.priority() > high.priority()) {
+				return low.with(low.left, merge(low.right, high));
+			}
+			return high.with(merge(low, high.left), high.right);
+		}
+
+	}
+
+	/**
+	 * In-order walk of a treap.
+	 */
+	static class TreeWalk {
+
+		private final Deque<Node> path = new ArrayDeque<>();
+
+		/**
+		 * @return a walk starting at the node of the given rank
+		 */
+		static TreeWalk atRank(final Node root, final int rank) {
+			final TreeWalk walk = new TreeWalk();
+			Node node = root;
+			int skip = rank;
+			while (node != null) {
+				final int leftSize = Node.size(node.left);
+				if (skip < leftSize) {
+					walk.path.push(node);
+					node = node.left;
+				} else if (skip == leftSize) {
+					walk.path.push(node);
+					break;
+				} else {
+					skip -= leftSize + 1;
+					node = node.right;
+				}
+			}
+			return walk;
+		}
+
+		/**
+		 * @return a walk starting at the first node with a key not lower than
+		 *         the given one
+		 */
+		static TreeWalk atKey(final Node root, final long key) {
+			final TreeWalk walk = new TreeWalk();
+			Node node = root;
+			while (node != null) {
+				if (node.key < key) {
+					node = node.right;
+				} else {
+					walk.path.push(node);
+					node = node.left;
+				}
+			}
+			return walk;
+		}
+
+		boolean hasNext() {
+			return !this.path.isEmpty();
+		}
+
+		long peekKey() {
+			return this.path.peek().key;
+		}
+
+		Podcast next() {
+			final Node node = this.path.pop();
+			Node child = node.right;
+			while (child != null) {
+				this.path.push(child);
+				child = child.left;
+			}
+			return node.podcast;
+		}
+
+	}
+
+	private static final class TreeIterator implements ResumablePodcastIterator {
+
+		private final TreeWalk walk;
+		private final long endKey;
+
+		private TreeIterator(final TreeWalk walk, final long endKey) {
+			this.walk = walk;
+			this.endKey = endKey;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.walk.hasNext();
+		}
+
+		@Override
+		public Podcast next() {
+			return this.walk.next();
+		}
+
+		@Override
+		public PodcastCursor cursor() {
+			return new PodcastCursor(this.walk.hasNext() ? this.walk.peekKey() : this.endKey);
+		}
+
+	}
+
+	/**
+	 * Splits a snapshot by rank, the subtree sizes giving the exact size of
+	 * every half.
+	 */
+	private static final class TreeSpliterator implements Spliterator<Podcast> {
+
+		private final Node root;
+		private int from;
+		private final int to;
+		private TreeWalk walk;
+
+		private TreeSpliterator(final Node root, final int from, final int to) {
+			this.root = root;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean tryAdvance(final Consumer<? super Podcast> action) {
+			if (this.from >= this.to) {
+				return false;
+			}
+			if (this.walk == null) {
+				this.walk = TreeWalk.atRank(this.root, this.from);
+			}
+			this.from++;
+			action.accept(this.walk.next());
+			return true;
+		}
+
+		@Override
+		public Spliterator<Podcast> trySplit() {
+			final int middle = (this.from + this.to) >>> 1;
+			if (this.walk != null || middle <= this.from) {
+				return null;
+			}
+			final Spliterator<Podcast> prefix = new TreeSpliterator(this.root, this.from, middle);
+			this.from = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.to - this.from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+
+	}
+
+}
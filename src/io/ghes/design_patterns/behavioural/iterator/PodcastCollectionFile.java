@@ -0,0 +1,287 @@
+package io.ghes.design_patterns.behavioural.iterator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+/**
+ * Podcast collection stored in a file and accessed through memory-mapped
+ * chunks, for catalogs that do not fit in the heap.
+ *
+ * The file starts with a header holding the number of records, of removed
+ * ones and of compactions, followed by fixed-size records: a state byte, the topic
+ * ordinal, the length of the author and the author encoded in UTF-8.
+ * Removing a podcast only marks its record as removed; when removed records
+ * exceed a quarter of the file, the live ones are compacted.
+ *
+ * Iterators read the state and topic straight from the mapped pages and
+ * only build a {@link Podcast} for the records they return. As with
+ * {@link PodcastCollectionColumnar}, podcasts are removed by value.
+ *
+ * A compaction moves the records, so it invalidates the open iterators and
+ * the cursors taken before it: using them throws a
+ * {@link ConcurrentModificationException} instead of skipping or repeating
+ * podcasts.
+ */
+public class PodcastCollectionFile implements PodcastCollection, AutoCloseable {
+
+	public static final int RECORD_SIZE = 64;
+	public static final int MAX_AUTHOR_LENGTH = RECORD_SIZE - 4;
+
+	private static final int HEADER_SIZE = RECORD_SIZE;
+	private static final int MAGIC = 0x50434631;
+	private static final int CHUNK_SIZE = 64 * 1024 * 1024;
+	private static final byte LIVE = 0;
+	private static final byte REMOVED = 1;
+	private static final int MIN_COMPACTION = 1024;
+	private static final Topic[] TOPICS = Topic.values();
+	// a cursor holds the row in its low bits and the generation above them
+	private static final int ROW_BITS = 40;
+	private static final long ROW_MASK = (1L << ROW_BITS) - 1;
+	private static final long GENERATION_MASK = (1L << (63 - ROW_BITS)) - 1;
+
+	private final FileChannel channel;
+	private final List<MappedByteBuffer> chunks = new ArrayList<>();
+	private final byte[] record = new byte[RECORD_SIZE];
+	private long count;
+	private long removed;
+	// bumped by every compaction that moves records
+	private long generation;
+
+	public PodcastCollectionFile(final Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		final boolean empty = this.channel.size() == 0;
+		this.chunk(0);
+		final MappedByteBuffer header = this.chunks.get(0);
+		if (empty) {
+			header.putInt(0, MAGIC);
+			this.writeHeader();
+		} else if (header.getInt(0) != MAGIC) {
+			this.channel.close();
+			throw new IOException(path + " is not a podcast file");
+		} else {
+			this.count = header.getLong(8);
+			this.removed = header.getLong(16);
+			this.generation = header.getLong(24);
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the author does not fit in a record
+	 */
+	@Override
+	public void addPodcast(final Podcast podcast) {
+		final byte[] author = podcast.getAuthor()
+				.getBytes(StandardCharsets.UTF_8);
+		if (author.length > MAX_AUTHOR_LENGTH) {
+			throw new IllegalArgumentException(
+					"Author longer than " + MAX_AUTHOR_LENGTH + " bytes: " + podcast.getAuthor());
+		}
+		this.record[0] = LIVE;
+		this.record[1] = (byte) podcast.getTopic()
+				.ordinal();
+		this.record[2] = (byte) (author.length >>> 8);
+		this.record[3] = (byte) author.length;
+		System.arraycopy(author, 0, this.record, 4, author.length);
+		this.chunk(this.count)
+				.put(offset(this.count), this.record, 0, 4 + author.length);
+		this.count++;
+		this.writeHeader();
+	}
+
+	@Override
+	public void removePodcast(final Podcast podcast) {
+		final byte[] author = podcast.getAuthor()
+				.getBytes(StandardCharsets.UTF_8);
+		final byte topic = (byte) podcast.getTopic()
+				.ordinal();
+		for (long row = 0; row < this.count; row++) {
+			final MappedByteBuffer chunk = this.chunk(row);
+			final int offset = offset(row);
+			// state, topic and author length are read at once
+			final int head = chunk.getInt(offset);
+			if (head >>> 16 == (LIVE << 8 | topic) && sameAuthor(chunk, offset, head & 0xFFFF, author)) {
+				chunk.put(offset, REMOVED);
+				this.removed++;
+				this.writeHeader();
+				if (this.removed >= MIN_COMPACTION && this.removed * 4 > this.count) {
+					this.compact();
+				}
+				return;
+			}
+		}
+	}
+
+	@Override
+	public PodcastIterator iterator(final Topic topic) {
+		return new FileIterator(topic, 0);
+	}
+
+	/**
+	 * Resumes at the record in the cursor.
+	 *
+	 * @throws ConcurrentModificationException if the file was compacted since
+	 *                                         the cursor was taken
+	 */
+	@Override
+	public ResumablePodcastIterator iterator(final Topic topic, final PodcastCursor cursor) {
+		final long position = cursor.getPosition();
+		// the start is the same whatever the generation
+		if (position != 0 && position >>> ROW_BITS != (this.generation & GENERATION_MASK)) {
+			throw new ConcurrentModificationException("Cursor taken before a compaction");
+		}
+		return new FileIterator(topic, Math.min(position & ROW_MASK, this.count));
+	}
+
+	/**
+	 * @return the number of podcasts, removed ones excluded
+	 */
+	public long size() {
+		return this.count - this.removed;
+	}
+
+	/**
+	 * Moves the live records over the removed ones; the open iterators and the
+	 * cursors taken so far are no longer valid.
+	 */
+	public void compact() {
+		long live = 0;
+		for (long row = 0; row < this.count; row++) {
+			final MappedByteBuffer chunk = this.chunk(row);
+			final int offset = offset(row);
+			if (chunk.get(offset) == LIVE) {
+				if (live != row) {
+					chunk.get(offset, this.record);
+					this.chunk(live)
+							.put(offset(live), this.record);
+				}
+				live++;
+			}
+		}
+		if (live != this.count) {
+			this.generation++;
+		}
+		this.count = live;
+		this.removed = 0;
+		this.writeHeader();
+	}
+
+	public void force() {
+		for (final MappedByteBuffer chunk : this.chunks) {
+			chunk.force();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.force();
+		this.chunks.clear();
+		this.channel.close();
+	}
+
+	private void writeHeader() {
+		this.chunks.get(0)
+				.putLong(8, this.count)
+				.putLong(16, this.removed)
+				.putLong(24, this.generation);
+	}
+
+	/**
+	 * @return the chunk holding the given record, mapped on first use
+	 */
+	private MappedByteBuffer chunk(final long row) {
+		final int index = (int) ((HEADER_SIZE + row * RECORD_SIZE) / CHUNK_SIZE);
+		while (this.chunks.size() <= index) {
+			try {
+				final long position = (long) this.chunks.size() * CHUNK_SIZE;
+				this.chunks.add(this.channel.map(MapMode.READ_WRITE, position, CHUNK_SIZE));
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return this.chunks.get(index);
+	}
+
+	private static int offset(final long row) {
+		return (int) ((HEADER_SIZE + row * RECORD_SIZE) % CHUNK_SIZE);
+	}
+
+	private static boolean sameAuthor(final MappedByteBuffer chunk, final int offset, final int length,
+			final byte[] author) {
+		if (length != author.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (chunk.get(offset + 4 + i) != author[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private class FileIterator implements ResumablePodcastIterator {
+
+		private final Topic topic;
+		private final byte[] author = new byte[MAX_AUTHOR_LENGTH];
+		private final long generation = PodcastCollectionFile.this.generation;
+		private long row;
+
+		private FileIterator(final Topic topic, final long row) {
+			this.topic = topic;
+			this.row = row;
+		}
+
+		@Override
+		public boolean hasNext() {
+			this.checkGeneration();
+			final PodcastCollectionFile file = PodcastCollectionFile.this;
+			final boolean all = this.topic.equals(Topic.ALL);
+			final byte wanted = (byte) this.topic.ordinal();
+			while (this.row < file.count) {
+				final MappedByteBuffer chunk = file.chunk(this.row);
+				final int offset = offset(this.row);
+				final int head = chunk.getInt(offset);
+				if (head >>> 24 == LIVE && (all || (byte) (head >>> 16) == wanted)) {
+					return true;
+				}
+				this.row++;
+			}
+			return false;
+		}
+
+		@Override
+		public Podcast next() {
+			this.checkGeneration();
+			final MappedByteBuffer chunk = PodcastCollectionFile.this.chunk(this.row);
+			final int offset = offset(this.row);
+			final int length = chunk.getShort(offset + 2) & 0xFFFF;
+			chunk.get(offset + 4, this.author, 0, length);
+			this.row++;
+			final String author = new String(this.author, 0, length, StandardCharsets.UTF_8);
+			return new Podcast(author, TOPICS[chunk.get(offset + 1)]);
+		}
+
+		@Override
+		public PodcastCursor cursor() {
+			this.checkGeneration();
+			return new PodcastCursor((this.generation & GENERATION_MASK) << ROW_BITS | this.row);
+		}
+
+		private void checkGeneration() {
+			if (this.generation != PodcastCollectionFile.this.generation) {
+				throw new ConcurrentModificationException("File compacted during the iteration");
+			}
+		}
+
+	}
+
+}
@@ -2,63 +2,127 @@ package io.ghes.design_patterns.behavioural.iterator;
 
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.Spliterator;
+
+/**
+ * List of podcasts with a per-topic index, so that iterating a topic only
+ * touches the podcasts of that topic, and an author index for prefix search.
+ *
+ * The topic and the author of a podcast must not change while it is in the
+ * collection.
+ */
 public class PodcastCollectionList implements PodcastCollection {
 
 	private final List<Podcast> podcastList;
+	private final TopicIndex topicIndex;
+	private final AuthorIndex authorIndex;
 
 	public PodcastCollectionList() {
 		this.podcastList = new ArrayList<>();
+		this.topicIndex = new TopicIndex();
+		this.authorIndex = new AuthorIndex();
 	}
 
 	@Override
 	public void addPodcast(final Podcast podcast) {
+		// checked first, the list and the indexes must not disagree
+		if (podcast.getTopic() == null) {
+			throw new IllegalArgumentException("Podcast without topic: " + podcast);
+		}
 		this.podcastList.add(podcast);
+		this.topicIndex.add(podcast.getTopic(), this.podcastList.size() - 1);
+		this.authorIndex.add(podcast);
 
 	}
 
 	@Override
 	public void removePodcast(final Podcast podcast) {
-		this.podcastList.remove(podcast);
+		final int position = this.podcastList.indexOf(podcast);
+		if (position >= 0) {
+			this.podcastList.remove(position);
+			this.topicIndex.remove(podcast.getTopic(), position);
+			this.authorIndex.remove(podcast);
+		}
 
 	}
 
 	@Override
 	public PodcastIterator iterator(final Topic topic) {
-		return new PodcastIteratorImpl(topic, this.podcastList);
+		return new PodcastIteratorImpl(topic, this.podcastList, 0);
+	}
+
+	/**
+	 * Seeks the position in the cursor through the topic index. Removing
+	 * podcasts before that position between two pages shifts the scan.
+	 */
+	@Override
+	public ResumablePodcastIterator iterator(final Topic topic, final PodcastCursor cursor) {
+		final int start = (int) Math.min(cursor.getPosition(), this.podcastList.size());
+		return new PodcastIteratorImpl(topic, this.podcastList, start);
 	}
 
-	private class PodcastIteratorImpl implements PodcastIterator {
+	/**
+	 * Looks the prefix up in the author index, the podcasts come sorted by
+	 * author.
+	 */
+	@Override
+	public PodcastIterator iterator(final String authorPrefix, final Topic topic) {
+		return this.authorIndex.iterator(authorPrefix, topic);
+	}
+
+	@Override
+	public Spliterator<Podcast> spliterator(final Topic topic) {
+		if (topic.equals(Topic.ALL)) {
+			return new IndexedSpliterator(this.podcastList::get, 0, this.podcastList.size());
+		}
+		return new IndexedSpliterator(i -> this.podcastList.get(this.topicIndex.get(topic, i)), 0,
+				this.topicIndex.size(topic));
+	}
+
+	private class PodcastIteratorImpl implements ResumablePodcastIterator {
 
 		private final Topic topic;
 		private final List<Podcast> podcasts;
 		private int position;
 
-		public PodcastIteratorImpl(final Topic topic, final List<Podcast> podcastList) {
+		public PodcastIteratorImpl(final Topic topic, final List<Podcast> podcastList, final int start) {
 			this.topic = topic;
 			this.podcasts = podcastList;
+			this.position = topic.equals(Topic.ALL) ? start
+					: PodcastCollectionList.this.topicIndex.indexOf(topic, start);
 		}
 
 		@Override
 		public boolean hasNext() {
-			while (this.position < this.podcasts.size()) {
-				final Podcast c = this.podcasts.get(this.position);
-				if (c.getTopic()
-						.equals(this.topic) || this.topic.equals(Topic.ALL)) {
-					return true;
-				}
-				this.position++;
+			if (this.topic.equals(Topic.ALL)) {
+				return this.position < this.podcasts.size();
 			}
-			return false;
+			return this.position < PodcastCollectionList.this.topicIndex.size(this.topic);
 		}
 
 		@Override
 		public Podcast next() {
-			final Podcast c = this.podcasts.get(this.position);
+			final Podcast c;
+			if (this.topic.equals(Topic.ALL)) {
+				c = this.podcasts.get(this.position);
+			} else {
+				c = this.podcasts.get(PodcastCollectionList.this.topicIndex.get(this.topic, this.position));
+			}
 			this.position++;
 			return c;
 		}
 
+		@Override
+		public PodcastCursor cursor() {
+			if (this.topic.equals(Topic.ALL)) {
+				return new PodcastCursor(this.position);
+			}
+			if (!this.hasNext()) {
+				return new PodcastCursor(this.podcasts.size());
+			}
+			return new PodcastCursor(PodcastCollectionList.this.topicIndex.get(this.topic, this.position));
+		}
+
 	}
 
 }
@@ -0,0 +1,57 @@
+package io.ghes.design_patterns.behavioural.iterator;
+
+/**
+ * Opaque token telling where a topic scan stopped, so that the next page can
+ * resume there instead of starting over.
+ *
+ * Only the collection that handed out a cursor knows what its position
+ * means. A cursor can travel as a string: {@link #toString()} encodes it and
+ * {@link #parse(String)} decodes it.
+ */
+public final class PodcastCursor {
+
+	public static final PodcastCursor START = new PodcastCursor(0);
+
+	private static final int RADIX = 36;
+
+	private final long position;
+
+	PodcastCursor(final long position) {
+		this.position = position;
+	}
+
+	long getPosition() {
+		return this.position;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the token is not a cursor
+	 */
+	public static PodcastCursor parse(final String token) {
+		try {
+			final long position = Long.parseLong(token, RADIX);
+			if (position < 0) {
+				throw new IllegalArgumentException("Invalid cursor: " + token);
+			}
+			return new PodcastCursor(position);
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid cursor: " + token, e);
+		}
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		return obj instanceof PodcastCursor && ((PodcastCursor) obj).position == this.position;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(this.position);
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(this.position, RADIX);
+	}
+
+}
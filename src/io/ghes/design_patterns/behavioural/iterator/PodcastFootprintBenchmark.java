@@ -0,0 +1,53 @@
+package io.ghes.design_patterns.behavioural.iterator;
+
+import java.util.function.Supplier;
+
+/**
+ * Compares the heap used by {@link PodcastCollectionList} and by
+ * {@link PodcastCollectionColumnar} for the same catalog, where many podcasts
+ * share the same author through distinct String instances.
+ *
+ * Run with a fixed heap, e.g. <code>-Xms2g -Xmx2g</code>, for stable numbers.
+ */
+public class PodcastFootprintBenchmark {
+
+	private static final int PODCASTS = 2_000_000;
+	private static final int AUTHORS = 10_000;
+
+	public static void main(final String[] args) {
+		final long list = footprint(PodcastCollectionList::new);
+		final long columnar = footprint(PodcastCollectionColumnar::new);
+		System.out.printf("list:     %,12d bytes (%5.1f B/podcast)%n", list, (double) list / PODCASTS);
+		System.out.printf("columnar: %,12d bytes (%5.1f B/podcast)%n", columnar, (double) columnar / PODCASTS);
+		System.out.printf("reduction: %.1fx%n", (double) list / columnar);
+	}
+
+	private static long footprint(final Supplier<PodcastCollection> factory) {
+		final long before = usedHeap();
+		PodcastCollection podcasts = factory.get();
+		final Topic[] topics = Topic.values();
+		for (int i = 0; i < PODCASTS; i++) {
+			// a new String every time, as when the catalog is read from a file
+			final String author = new StringBuilder("Author ").append(i % AUTHORS)
+					.toString();
+			podcasts.addPodcast(new Podcast(author, topics[i % topics.length]));
+		}
+		final long after = usedHeap();
+		// keep the collection reachable until it has been measured
+		if (!podcasts.iterator(Topic.ALL)
+				.hasNext()) {
+			throw new IllegalStateException("Empty catalog");
+		}
+		podcasts = null;
+		return after - before;
+	}
+
+	private static long usedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
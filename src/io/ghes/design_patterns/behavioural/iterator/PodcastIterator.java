@@ -6,4 +6,18 @@ public interface PodcastIterator {
 
 	public Podcast next();
 
+	/**
+	 * Fills the buffer with the next podcasts.
+	 *
+	 * @return how many podcasts were put in the buffer, less than its length
+	 *         only when the iteration is over
+	 */
+	public default int nextBatch(final Podcast[] buffer) {
+		int count = 0;
+		while (count < buffer.length && this.hasNext()) {
+			buffer[count++] = this.next();
+		}
+		return count;
+	}
+
 }
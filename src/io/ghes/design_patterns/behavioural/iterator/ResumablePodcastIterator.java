@@ -0,0 +1,15 @@
+package io.ghes.design_patterns.behavioural.iterator;
+
+/**
+ * An iteration that can be stopped and resumed later, possibly by another
+ * caller, through a {@link PodcastCursor}.
+ */
+public interface ResumablePodcastIterator extends PodcastIterator {
+
+	/**
+	 * @return where the iteration stands, to be given to
+	 *         {@link PodcastCollection#iterator(Topic, PodcastCursor)}
+	 */
+	public PodcastCursor cursor();
+
+}
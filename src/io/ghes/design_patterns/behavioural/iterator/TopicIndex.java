@@ -0,0 +1,83 @@
+package io.ghes.design_patterns.behavioural.iterator;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Positions of the podcasts of every topic, kept sorted in plain int arrays,
+ * so that a topic can be walked without looking at the other podcasts.
+ */
+final class TopicIndex {
+
+	private final Map<Topic, Positions> positions = new EnumMap<>(Topic.class);
+
+	TopicIndex() {
+		for (final Topic topic : Topic.values()) {
+			this.positions.put(topic, new Positions());
+		}
+	}
+
+	/**
+	 * Records a podcast added after all the others.
+	 */
+	void add(final Topic topic, final int position) {
+		this.positions.get(topic)
+				.add(position);
+	}
+
+	/**
+	 * Forgets the podcast at the given position and shifts the following ones
+	 * down by one, as a list does on removal.
+	 */
+	void remove(final Topic topic, final int position) {
+		for (final Map.Entry<Topic, Positions> entry : this.positions.entrySet()) {
+			entry.getValue()
+					.remove(entry.getKey() == topic ? position : -1, position);
+		}
+	}
+
+	int size(final Topic topic) {
+		return this.positions.get(topic).size;
+	}
+
+	int get(final Topic topic, final int index) {
+		return this.positions.get(topic).data[index];
+	}
+
+	/**
+	 * @return the index of the first position not lower than the given one
+	 */
+	int indexOf(final Topic topic, final int position) {
+		final Positions p = this.positions.get(topic);
+		final int found = Arrays.binarySearch(p.data, 0, p.size, position);
+		return found >= 0 ? found : -found - 1;
+	}
+
+	private static final class Positions {
+
+		private int[] data = new int[16];
+		private int size;
+
+		private void add(final int position) {
+			if (this.size == this.data.length) {
+				this.data = Arrays.copyOf(this.data, this.size * 2);
+			}
+			this.data[this.size++] = position;
+		}
+
+		private void remove(final int removed, final int shiftAfter) {
+			int from = Arrays.binarySearch(this.data, 0, this.size, shiftAfter);
+			from = from >= 0 ? from : -from - 1;
+			if (from < this.size && this.data[from] == removed) {
+				System.arraycopy(this.data, from + 1, this.data, from, this.size - from - 1);
+				this.size--;
+			}
+			for (int i = from; i < this.size; i++) {
+				this.data[i]--;
+			}
+		}
+
+	}
+
+}
@@ -1,5 +1,7 @@
 package io.ghes.design_patterns.behavioural.mediator;
 
+import java.util.concurrent.TimeUnit;
+
 public class Application {
 
 	public static void main(final String[] args) {
@@ -20,6 +22,63 @@ public class Application {
 		System.out.print("Fan is ");
 		System.out.println(fan.isOn() ? "on" : "off");
 
+		System.out.println("------");
+		// a burst of presses within the window becomes one change, applied on flush
+		mediator.setDebounce(50, TimeUnit.MILLISECONDS);
+		for (int i = 0; i < 5; i++) {
+			button.press();
+		}
+		try {
+			Thread.sleep(60);
+		} catch (final InterruptedException e) {
+			Thread.currentThread()
+					.interrupt();
+		}
+		mediator.flush();
+		System.out.print("Fan is ");
+		System.out.println(fan.isOn() ? "on" : "off");
+
+		System.out.println("------");
+		final Fan[] fans = new Fan[3];
+		try (EventLoopMediator fleet = new EventLoopMediator()) {
+			for (int group = 0; group < fans.length; group++) {
+				fans[group] = new Fan();
+				final CoolingSystemMediator groupMediator = new CoolingSystemMediator();
+				groupMediator.setButton(new Button());
+				groupMediator.setFan(fans[group]);
+				groupMediator.setPowerSupplier(new PowerSupplier());
+				fleet.register(group, groupMediator);
+			}
+			fleet.press(0);
+			fleet.post(2, CoolingEvent.TURN_ON);
+			fleet.post(2, CoolingEvent.TURN_ON);
+		}
+		for (int group = 0; group < fans.length; group++) {
+			System.out.println("Fan " + group + " is " + (fans[group].isOn() ? "on" : "off"));
+		}
+
+		System.out.println("------");
+		final MediatorMetrics metrics = new MediatorMetrics();
+		try (ShardedMediator racks = new ShardedMediator()) {
+			racks.setMetrics(metrics);
+			for (int group = 0; group < fans.length; group++) {
+				final CoolingSystemMediator groupMediator = new CoolingSystemMediator();
+				groupMediator.setMetrics(metrics);
+				groupMediator.setButton(new Button());
+				groupMediator.setFan(fans[group]);
+				groupMediator.setPowerSupplier(new PowerSupplier());
+				racks.register(group, groupMediator);
+				System.out.println("Group " + group + " runs on partition " + racks.partitionIndexOf(group));
+			}
+			// group 1 follows group 0, even across partitions
+			racks.follow(0, 1);
+			racks.press(0);
+		}
+		for (int group = 0; group < fans.length; group++) {
+			System.out.println("Fan " + group + " is " + (fans[group].isOn() ? "on" : "off"));
+		}
+		System.out.println(metrics.export());
+
 	}
 
 }
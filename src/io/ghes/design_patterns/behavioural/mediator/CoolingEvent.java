@@ -0,0 +1,17 @@
+package io.ghes.design_patterns.behavioural.mediator;
+
+/**
+ * What a device group can be told through an {@link EventLoopMediator}.
+ */
+public enum CoolingEvent {
+
+	/** The button of the group was pressed. */
+	PRESS,
+
+	/** A sensor asks for the fan to run. */
+	TURN_ON,
+
+	/** A sensor asks for the fan to stop. */
+	TURN_OFF
+
+}
@@ -1,9 +1,33 @@
 package io.ghes.design_patterns.behavioural.mediator;
 
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Wires a button, a fan and a power supplier together.
+ *
+ * With a debounce window, the fan changes state at most once per window:
+ * the first request of a quiet period is applied at once, the following
+ * ones only record the state asked for last, and {@link #flush()} applies
+ * it when the window is over. Presses that cancel each other out within a
+ * window cause no change at all. Nothing calls {@link #flush()} on a
+ * standalone mediator: its owner must, or hand it to an
+ * {@link EventLoopMediator}, which flushes its groups on time.
+ *
+ * With {@link MediatorMetrics}, the latency of every press, start and stop
+ * is recorded.
+ */
 public class CoolingSystemMediator {
 	private Button button;
 	private Fan fan;
 	private PowerSupplier powerSupplier;
+	private long debounceNanos;
+	private LongSupplier clock = System::nanoTime;
+	private long windowEnd;
+	private boolean windowOpen;
+	private boolean pending;
+	private boolean pendingOn;
+	private MediatorMetrics metrics;
 
 	public void setButton(final Button button) {
 		this.button = button;
@@ -19,20 +43,145 @@ public class CoolingSystemMediator {
 		this.powerSupplier = powerSupplier;
 	}
 
+	/**
+	 * @param window how long the fan keeps a state before changing it again,
+	 *               0 to disable debouncing
+	 */
+	public void setDebounce(final long window, final TimeUnit unit) {
+		if (window < 0) {
+			throw new IllegalArgumentException("Window must not be negative");
+		}
+		this.debounceNanos = unit.toNanos(window);
+	}
+
+	/**
+	 * @param clock monotonic time in nanoseconds, {@link System#nanoTime()} by
+	 *              default
+	 */
+	public void setClock(final LongSupplier clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * @param metrics where latencies are recorded, null to record nothing
+	 */
+	public void setMetrics(final MediatorMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	public void press() {
-		if (this.fan.isOn()) {
-			this.fan.turnOff();
-		} else {
+		final MediatorMetrics pressMetrics = this.metrics;
+		if (pressMetrics == null) {
+			this.dispatchPress();
+			return;
+		}
+		final long begin = System.nanoTime();
+		this.dispatchPress();
+		pressMetrics.getPress()
+				.record(System.nanoTime() - begin);
+	}
+
+	private void dispatchPress() {
+		if (this.debounceNanos == 0) {
+			if (this.fan.isOn()) {
+				this.fan.turnOff();
+			} else {
+				this.fan.turnOn();
+			}
+			return;
+		}
+		this.request(!(this.pending ? this.pendingOn : this.fan.isOn()));
+	}
+
+	public boolean isFanOn() {
+		return this.fan.isOn();
+	}
+
+	/**
+	 * Turns the fan on or off, doing nothing if it already is.
+	 */
+	public void switchFan(final boolean on) {
+		if (this.debounceNanos == 0) {
+			this.apply(on);
+			return;
+		}
+		this.request(on);
+	}
+
+	/**
+	 * Applies the last state asked for if the debounce window is over.
+	 *
+	 * @return the nanoseconds left before the pending state can be applied,
+	 *         or -1 if no state is pending
+	 */
+	public long flush() {
+		if (!this.pending) {
+			return -1;
+		}
+		final long now = this.clock.getAsLong();
+		if (now - this.windowEnd < 0) {
+			return this.windowEnd - now;
+		}
+		this.pending = false;
+		this.windowOpen = false;
+		if (this.pendingOn != this.fan.isOn()) {
+			this.apply(this.pendingOn);
+			this.openWindow(now);
+		}
+		return -1;
+	}
+
+	private void request(final boolean on) {
+		final long now = this.clock.getAsLong();
+		if (this.windowOpen && now - this.windowEnd < 0) {
+			// last write wins
+			this.pending = true;
+			this.pendingOn = on;
+			return;
+		}
+		this.pending = false;
+		this.windowOpen = false;
+		if (on != this.fan.isOn()) {
+			this.apply(on);
+			this.openWindow(now);
+		}
+	}
+
+	private void openWindow(final long now) {
+		this.windowEnd = now + this.debounceNanos;
+		this.windowOpen = true;
+	}
+
+	private void apply(final boolean on) {
+		if (on && !this.fan.isOn()) {
 			this.fan.turnOn();
+		} else if (!on && this.fan.isOn()) {
+			this.fan.turnOff();
 		}
 	}
 
 	public void start() {
+		final MediatorMetrics startMetrics = this.metrics;
+		if (startMetrics == null) {
+			this.powerSupplier.turnOn();
+			return;
+		}
+		final long begin = System.nanoTime();
 		this.powerSupplier.turnOn();
+		startMetrics.getStart()
+				.record(System.nanoTime() - begin);
 	}
 
 	public void stop() {
+		final MediatorMetrics stopMetrics = this.metrics;
+		if (stopMetrics == null) {
+			this.powerSupplier.turnOff();
+			return;
+		}
+		final long begin = System.nanoTime();
 		this.powerSupplier.turnOff();
+		stopMetrics.getStop()
+				.record(System.nanoTime() - begin);
 	}
 
 }
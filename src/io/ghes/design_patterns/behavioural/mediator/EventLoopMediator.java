@@ -0,0 +1,364 @@
+package io.ghes.design_patterns.behavioural.mediator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Mediator for a fleet of device groups, each one a button, a fan and a
+ * power supplier wired to its own {@link CoolingSystemMediator}.
+ *
+ * Any thread can post events to a group: they go into a lock-free queue
+ * that a single loop thread drains in batches. Groups are only ever touched
+ * by the loop thread, so devices need no locking. The loop parks when the
+ * queue is empty and is woken by the next event.
+ *
+ * A group can follow another one: when the fan of the leader changes state,
+ * the follower is sent the same state as an event. That event goes through
+ * the router, which may hand it to another loop.
+ *
+ * Groups with a debounce window are flushed by the loop when their window is
+ * over, even while events keep coming. The windows and the flushes are timed
+ * by the same clock, the loop's, which every registered group is given.
+ *
+ * With {@link MediatorMetrics}, the time every event waited in the queue is
+ * recorded.
+ */
+public class EventLoopMediator implements AutoCloseable {
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+	// only read and written by the loop thread
+	private final Map<Long, CoolingSystemMediator> groups = new HashMap<>();
+	private final Map<Long, long[]> followers = new HashMap<>();
+	private final Map<Long, CoolingSystemMediator> debouncing = new HashMap<>();
+	private long nextFlush;
+	private LongSupplier clock = System::nanoTime;
+	private final ObjLongConsumer<CoolingEvent> router;
+	private final int batchSize;
+	private final Thread thread;
+	private final CompletableFuture<Void> stopped = new CompletableFuture<>();
+	// completed by the loop the next time it runs out of work
+	private final AtomicReference<CompletableFuture<Void>> idle = new AtomicReference<>();
+	private volatile boolean sleeping;
+	private volatile boolean closed;
+	// set by the loop before its last drains, see offer()
+	private volatile boolean stopping;
+	// only written by the loop thread
+	private volatile long dispatched;
+	private volatile MediatorMetrics metrics;
+
+	public EventLoopMediator() {
+		this(DEFAULT_BATCH_SIZE, Executors.defaultThreadFactory());
+	}
+
+	/**
+	 * @param batchSize how many events are dispatched before the loop looks
+	 *                  at anything else
+	 */
+	public EventLoopMediator(final int batchSize, final ThreadFactory threadFactory) {
+		this(batchSize, threadFactory, null);
+	}
+
+	/**
+	 * @param router delivers the events sent to followers; by default they
+	 *               are posted to this loop
+	 */
+	public EventLoopMediator(final int batchSize, final ThreadFactory threadFactory,
+			final ObjLongConsumer<CoolingEvent> router) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be positive");
+		}
+		this.batchSize = batchSize;
+		this.router = router != null ? router : (event, group) -> this.post(group, event);
+		this.thread = threadFactory.newThread(this::run);
+		this.thread.start();
+	}
+
+	/**
+	 * Hands a group over to the loop; from then on its devices must only be
+	 * driven through events, and its clock is the loop's.
+	 */
+	public void register(final long group, final CoolingSystemMediator mediator) {
+		this.offer(new Event(group, null, () -> {
+			mediator.setClock(this.clock);
+			this.groups.put(group, mediator);
+		}));
+	}
+
+	/**
+	 * @param clock monotonic time in nanoseconds, {@link System#nanoTime()} by
+	 *              default, used by the loop and all its groups to time the
+	 *              debounce windows
+	 */
+	public void setClock(final LongSupplier clock) {
+		this.offer(new Event(0, null, () -> {
+			this.clock = clock;
+			for (final CoolingSystemMediator mediator : this.groups.values()) {
+				mediator.setClock(clock);
+			}
+		}));
+	}
+
+	/**
+	 * Makes the follower group turn its fan on and off with the leader, which
+	 * must be a group of this loop.
+	 */
+	public void follow(final long leader, final long follower) {
+		this.offer(new Event(leader, null, () -> {
+			final long[] current = this.followers.getOrDefault(leader, new long[0]);
+			final long[] updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = follower;
+			this.followers.put(leader, updated);
+		}));
+	}
+
+	public void post(final long group, final CoolingEvent event) {
+		this.offer(new Event(group, event, null));
+	}
+
+	/**
+	 * @param metrics where queueing delays are recorded, null to record
+	 *                nothing; the groups record their dispatches in the
+	 *                metrics they were given
+	 */
+	public void setMetrics(final MediatorMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public void press(final long group) {
+		this.post(group, CoolingEvent.PRESS);
+	}
+
+	/**
+	 * Stops accepting events and waits for the queued ones to be dispatched
+	 * and for the debounced states to be applied.
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		LockSupport.unpark(this.thread);
+		this.stopped.join();
+	}
+
+	/**
+	 * @return how many events the loop has dispatched so far
+	 */
+	long getDispatched() {
+		return this.dispatched;
+	}
+
+	/**
+	 * Blocks until the loop is waiting for events with no debounced state left
+	 * to apply, or has stopped.
+	 */
+	void awaitIdle() {
+		CompletableFuture<Void> waiter = this.idle.get();
+		if (waiter == null) {
+			this.idle.compareAndSet(null, new CompletableFuture<>());
+			waiter = this.idle.get();
+		}
+		// a parked loop goes round once more to see the waiter
+		LockSupport.unpark(this.thread);
+		if (waiter != null) {
+			CompletableFuture.anyOf(waiter, this.stopped)
+					.join();
+		}
+	}
+
+	private void offer(final Event event) {
+		// the loop itself still posts to followers while draining on close
+		if (this.closed && Thread.currentThread() != this.thread) {
+			throw new RejectedExecutionException("Mediator is closed");
+		}
+		if (this.metrics != null) {
+			event.postedAt = System.nanoTime();
+		}
+		this.events.offer(event);
+		// raced with close(): either the loop drains the event or it is taken back
+		if (this.stopping && Thread.currentThread() != this.thread && this.events.remove(event)) {
+			throw new RejectedExecutionException("Mediator is closed");
+		}
+		if (this.sleeping) {
+			LockSupport.unpark(this.thread);
+		}
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				final int drained = this.drain();
+				final long wait = this.flushDue();
+				if (drained > 0) {
+					continue;
+				}
+				if (this.closed && wait < 0) {
+					// a post that did not see stopping is in the queue by the next drain
+					if (this.stopping) {
+						return;
+					}
+					this.stopping = true;
+					continue;
+				}
+				this.sleeping = true;
+				// read before looking at the queue, so that events posted before
+				// the waiter arrived are seen
+				final CompletableFuture<Void> waiter = wait < 0 ? this.idle.get() : null;
+				if (this.events.isEmpty()) {
+					if (waiter != null && this.idle.compareAndSet(waiter, null)) {
+						waiter.complete(null);
+					}
+					if (wait >= 0) {
+						LockSupport.parkNanos(this, wait);
+					} else if (!this.closed) {
+						LockSupport.park(this);
+					}
+				}
+				this.sleeping = false;
+			}
+		} finally {
+			this.stopped.complete(null);
+		}
+	}
+
+	/**
+	 * @return how many events were dispatched, at most one batch
+	 */
+	private int drain() {
+		final MediatorMetrics drainMetrics = this.metrics;
+		int count = 0;
+		Event event;
+		while (count < this.batchSize && (event = this.events.poll()) != null) {
+			count++;
+			if (drainMetrics != null && event.postedAt != 0) {
+				drainMetrics.getQueueing()
+						.record(System.nanoTime() - event.postedAt);
+			}
+			try {
+				this.dispatch(event);
+			} catch (final RuntimeException e) {
+				// a faulty device must not stop the other groups
+				this.thread.getUncaughtExceptionHandler()
+						.uncaughtException(this.thread, e);
+			}
+		}
+		this.dispatched += count;
+		return count;
+	}
+
+	private void dispatch(final Event event) {
+		if (event.control != null) {
+			event.control.run();
+			return;
+		}
+		final CoolingSystemMediator mediator = this.groups.get(event.group);
+		if (mediator == null) {
+			// events of unknown groups are dropped
+			return;
+		}
+		final boolean wasOn = mediator.isFanOn();
+		switch (event.type) {
+		case PRESS:
+			mediator.press();
+			break;
+		case TURN_ON:
+			mediator.switchFan(true);
+			break;
+		case TURN_OFF:
+			mediator.switchFan(false);
+			break;
+		}
+		// tells whether the request left a state pending
+		final long left = mediator.flush();
+		this.notifyFollowers(event.group, wasOn, mediator.isFanOn());
+		if (left >= 0) {
+			final long due = this.clock.getAsLong() + left;
+			if (this.debouncing.isEmpty() || due - this.nextFlush < 0) {
+				this.nextFlush = due;
+			}
+			this.debouncing.put(event.group, mediator);
+		}
+	}
+
+	/**
+	 * Flushes the debounced groups if one of them is due.
+	 *
+	 * @return the nanoseconds left before the next group is due, or -1 if no
+	 *         group is debounced
+	 */
+	private long flushDue() {
+		if (this.debouncing.isEmpty()) {
+			return -1;
+		}
+		final long now = this.clock.getAsLong();
+		if (now - this.nextFlush < 0) {
+			return this.nextFlush - now;
+		}
+		long wait = -1;
+		int flushed = 0;
+		final Iterator<Map.Entry<Long, CoolingSystemMediator>> entries = this.debouncing.entrySet()
+				.iterator();
+		while (entries.hasNext()) {
+			final Map.Entry<Long, CoolingSystemMediator> entry = entries.next();
+			final CoolingSystemMediator mediator = entry.getValue();
+			final boolean wasOn = mediator.isFanOn();
+			long left;
+			try {
+				left = mediator.flush();
+			} catch (final RuntimeException e) {
+				this.thread.getUncaughtExceptionHandler()
+						.uncaughtException(this.thread, e);
+				left = -1;
+			}
+			if (left < 0) {
+				entries.remove();
+				flushed++;
+				this.notifyFollowers(entry.getKey(), wasOn, mediator.isFanOn());
+			} else if (wait < 0 || left < wait) {
+				wait = left;
+			}
+		}
+		this.nextFlush = now + Math.max(wait, 0);
+		this.dispatched += flushed;
+		return wait;
+	}
+
+	private void notifyFollowers(final long group, final boolean wasOn, final boolean isOn) {
+		final long[] groupFollowers = this.followers.get(group);
+		if (groupFollowers != null && isOn != wasOn) {
+			for (final long follower : groupFollowers) {
+				this.router.accept(isOn ? CoolingEvent.TURN_ON : CoolingEvent.TURN_OFF, follower);
+			}
+		}
+	}
+
+	private static final class Event {
+
+		private final long group;
+		private final CoolingEvent type;
+		// changes the loop itself, run instead of dispatching a device event
+		private final Runnable control;
+		// 0 when posted without metrics
+		private long postedAt;
+
+		private Event(final long group, final CoolingEvent type, final Runnable control) {
+			this.group = group;
+			this.type = type;
+			this.control = control;
+		}
+
+	}
+
+}
@@ -0,0 +1,150 @@
+package io.ghes.design_patterns.behavioural.mediator;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds, with a bounded footprint.
+ *
+ * Buckets are log-linear: every power of two is cut into 32 buckets of the
+ * same width, so a value is known within about 3% whatever its magnitude.
+ * Recording is one atomic increment and any thread can record at any time.
+ * The counts are striped, about one stripe per core allocated on first use,
+ * and a thread always records in the same stripe, so threads sharing a
+ * histogram seldom write the same cache line. Percentiles are computed on
+ * demand from the stripes added up.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	// a power of two, at least the number of cores
+	private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime()
+			.availableProcessors() * 2 - 1);
+
+	private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+
+	public void record(final long nanos) {
+		this.stripe()
+				.getAndIncrement(index(Math.max(nanos, 0)));
+	}
+
+	/**
+	 * @return how many values were recorded
+	 */
+	public long getCount() {
+		long count = 0;
+		for (final long c : this.copy()) {
+			count += c;
+		}
+		return count;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the highest value of the bucket holding the percentile, or 0 if
+	 *         nothing was recorded
+	 */
+	public long getValueAtPercentile(final double percentile) {
+		return valueAtPercentile(this.copy(), percentile);
+	}
+
+	/**
+	 * Clears the counts; values recorded meanwhile may be kept or lost.
+	 */
+	public void reset() {
+		for (int s = 0; s < STRIPES; s++) {
+			final AtomicLongArray counts = this.stripes.get(s);
+			if (counts != null) {
+				for (int i = 0; i < BUCKETS; i++) {
+					counts.set(i, 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return count and main percentiles in microseconds, all computed from
+	 *         the same copy of the counts
+	 */
+	@Override
+	public String toString() {
+		final long[] copy = this.copy();
+		long count = 0;
+		for (final long c : copy) {
+			count += c;
+		}
+		return String.format("count=%d p50=%.3fus p90=%.3fus p99=%.3fus p99.9=%.3fus max=%.3fus", count,
+				valueAtPercentile(copy, 50) / 1000.0, valueAtPercentile(copy, 90) / 1000.0,
+				valueAtPercentile(copy, 99) / 1000.0, valueAtPercentile(copy, 99.9) / 1000.0,
+				valueAtPercentile(copy, 100) / 1000.0);
+	}
+
+	/**
+	 * Threads get consecutive ids, so the loop threads of a mediator, started
+	 * one after the other, land on different stripes.
+	 */
+	@SuppressWarnings("deprecation")
+	private AtomicLongArray stripe() {
+		final int s = (int) Thread.currentThread()
+				.getId() & (STRIPES - 1);
+		final AtomicLongArray counts = this.stripes.get(s);
+		if (counts != null) {
+			return counts;
+		}
+		this.stripes.compareAndSet(s, null, new AtomicLongArray(BUCKETS));
+		return this.stripes.get(s);
+	}
+
+	private long[] copy() {
+		final long[] copy = new long[BUCKETS];
+		for (int s = 0; s < STRIPES; s++) {
+			final AtomicLongArray counts = this.stripes.get(s);
+			if (counts != null) {
+				for (int i = 0; i < BUCKETS; i++) {
+					copy[i] += counts.get(i);
+				}
+			}
+		}
+		return copy;
+	}
+
+	private static long valueAtPercentile(final long[] counts, final double percentile) {
+		long total = 0;
+		for (final long count : counts) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return highestValue(i);
+			}
+		}
+		return highestValue(BUCKETS - 1);
+	}
+
+	static int index(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		// value >>> shift is in [SUB_BUCKETS, 2 * SUB_BUCKETS)
+		return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	static long highestValue(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		final int shift = index / SUB_BUCKETS - 1;
+		final long sub = index % SUB_BUCKETS + SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+
+}
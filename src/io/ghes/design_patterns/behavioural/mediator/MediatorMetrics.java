@@ -0,0 +1,44 @@
+package io.ghes.design_patterns.behavioural.mediator;
+
+/**
+ * Latency histograms of the mediator dispatches, shared by every mediator
+ * they are given to.
+ */
+public class MediatorMetrics {
+
+	private final LatencyHistogram press = new LatencyHistogram();
+	private final LatencyHistogram start = new LatencyHistogram();
+	private final LatencyHistogram stop = new LatencyHistogram();
+	private final LatencyHistogram queueing = new LatencyHistogram();
+
+	/**
+	 * @return how long {@link CoolingSystemMediator#press()} took, start or
+	 *         stop included
+	 */
+	public LatencyHistogram getPress() {
+		return this.press;
+	}
+
+	public LatencyHistogram getStart() {
+		return this.start;
+	}
+
+	public LatencyHistogram getStop() {
+		return this.stop;
+	}
+
+	/**
+	 * @return how long events waited in the queue of an
+	 *         {@link EventLoopMediator} before being dispatched
+	 */
+	public LatencyHistogram getQueueing() {
+		return this.queueing;
+	}
+
+	public String export() {
+		return "press:    " + this.press + System.lineSeparator() + "start:    " + this.start
+				+ System.lineSeparator() + "stop:     " + this.stop + System.lineSeparator() + "queueing: "
+				+ this.queueing;
+	}
+
+}
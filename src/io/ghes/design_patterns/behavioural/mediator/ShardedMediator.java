@@ -0,0 +1,170 @@
+package io.ghes.design_patterns.behavioural.mediator;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.LongSupplier;
+
+/**
+ * Spreads device groups over several {@link EventLoopMediator} partitions,
+ * by default one per core, so that the fleet is not bound to the throughput
+ * of a single loop.
+ *
+ * A group belongs to the partition found by consistent hashing of its id:
+ * every partition owns many points of a hash ring and a group goes to the
+ * first point after its own hash. Running with one partition more or less
+ * only moves the groups of the points that changed owner.
+ *
+ * Partitions share no state. When a leader and its follower live on
+ * different partitions, the follower's event is posted to the queue of the
+ * follower's partition like any other event.
+ */
+public class ShardedMediator implements AutoCloseable {
+
+	private static final int POINTS_PER_PARTITION = 64;
+
+	private final EventLoopMediator[] partitions;
+	private final long[] ring;
+	private final int[] owners;
+	private volatile boolean closed;
+
+	public ShardedMediator() {
+		this(Runtime.getRuntime()
+				.availableProcessors(), Executors.defaultThreadFactory());
+	}
+
+	public ShardedMediator(final int partitions, final ThreadFactory threadFactory) {
+		if (partitions <= 0) {
+			throw new IllegalArgumentException("Partitions must be positive");
+		}
+		final long[][] points = new long[partitions * POINTS_PER_PARTITION][];
+		for (int p = 0; p < partitions; p++) {
+			for (int i = 0; i < POINTS_PER_PARTITION; i++) {
+				points[p * POINTS_PER_PARTITION + i] = new long[] { mix(((long) p << 32) | i), p };
+			}
+		}
+		Arrays.sort(points, (a, b) -> Long.compare(a[0], b[0]));
+		this.ring = new long[points.length];
+		this.owners = new int[points.length];
+		for (int i = 0; i < points.length; i++) {
+			this.ring[i] = points[i][0];
+			this.owners[i] = (int) points[i][1];
+		}
+		this.partitions = new EventLoopMediator[partitions];
+		for (int p = 0; p < partitions; p++) {
+			this.partitions[p] = new EventLoopMediator(EventLoopMediator.DEFAULT_BATCH_SIZE, threadFactory, this::route);
+		}
+	}
+
+	public void register(final long group, final CoolingSystemMediator mediator) {
+		this.checkOpen();
+		this.partitionOf(group)
+				.register(group, mediator);
+	}
+
+	/**
+	 * Makes the follower group turn its fan on and off with the leader, on
+	 * whatever partition they are.
+	 */
+	public void follow(final long leader, final long follower) {
+		this.checkOpen();
+		this.partitionOf(leader)
+				.follow(leader, follower);
+	}
+
+	public void post(final long group, final CoolingEvent event) {
+		this.checkOpen();
+		this.partitionOf(group)
+				.post(group, event);
+	}
+
+	public void press(final long group) {
+		this.post(group, CoolingEvent.PRESS);
+	}
+
+	/**
+	 * @see EventLoopMediator#setMetrics(MediatorMetrics)
+	 */
+	public void setMetrics(final MediatorMetrics metrics) {
+		for (final EventLoopMediator partition : this.partitions) {
+			partition.setMetrics(metrics);
+		}
+	}
+
+	/**
+	 * @see EventLoopMediator#setClock(LongSupplier)
+	 */
+	public void setClock(final LongSupplier clock) {
+		for (final EventLoopMediator partition : this.partitions) {
+			partition.setClock(clock);
+		}
+	}
+
+	public int getPartitionCount() {
+		return this.partitions.length;
+	}
+
+	/**
+	 * @return the index of the partition owning the group
+	 */
+	public int partitionIndexOf(final long group) {
+		final int found = Arrays.binarySearch(this.ring, mix(group));
+		final int point = found >= 0 ? found : -found - 1;
+		return this.owners[point == this.ring.length ? 0 : point];
+	}
+
+	/**
+	 * Stops accepting events, waits for the partitions to stop sending events
+	 * to each other, then closes them.
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		long before;
+		long after;
+		do {
+			before = this.dispatched();
+			for (final EventLoopMediator partition : this.partitions) {
+				partition.awaitIdle();
+			}
+			after = this.dispatched();
+			// an event dispatched during the pass may have woken a partition already seen idle
+		} while (before != after);
+		for (final EventLoopMediator partition : this.partitions) {
+			partition.close();
+		}
+	}
+
+	private void checkOpen() {
+		if (this.closed) {
+			throw new RejectedExecutionException("Mediator is closed");
+		}
+	}
+
+	private EventLoopMediator partitionOf(final long group) {
+		return this.partitions[this.partitionIndexOf(group)];
+	}
+
+	private long dispatched() {
+		long total = 0;
+		for (final EventLoopMediator partition : this.partitions) {
+			total += partition.getDispatched();
+		}
+		return total;
+	}
+
+	private void route(final CoolingEvent event, final long group) {
+		// still accepted while closing, close() waits for these
+		this.partitionOf(group)
+				.post(group, event);
+	}
+
+	private static long mix(final long value) {
+		long h = value * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		h *= 0xBF58476D1CE4E5B9L;
+		return h ^ (h >>> 29);
+	}
+
+}
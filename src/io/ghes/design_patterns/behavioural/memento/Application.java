@@ -4,7 +4,8 @@ public class Application {
 
 	public static void main(final String[] args) {
 		final Editor editor = new Editor();
-		final SnapshotHandler backupHandler = new SnapshotHandler();
+		// at most 1 MB of history, all but the 8 latest snapshots compressed
+		final SnapshotHandler backupHandler = new SnapshotHandler(1024 * 1024, 8);
 		backupHandler.backup(editor.createSnapshot());
 		editor.type("Hello,");
 		System.out.println(editor);
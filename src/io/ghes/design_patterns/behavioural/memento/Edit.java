@@ -0,0 +1,36 @@
+package io.ghes.design_patterns.behavioural.memento;
+
+/**
+ * One change of the text: characters deleted at a position, then text
+ * inserted there.
+ */
+final class Edit {
+
+	private final int position;
+	private final int deleted;
+	private final String inserted;
+
+	Edit(final int position, final int deleted, final String inserted) {
+		this.position = position;
+		this.deleted = deleted;
+		this.inserted = inserted;
+	}
+
+	int getPosition() {
+		return this.position;
+	}
+
+	int getDeleted() {
+		return this.deleted;
+	}
+
+	String getInserted() {
+		return this.inserted;
+	}
+
+	Rope applyTo(final Rope text) {
+		return text.delete(this.position, this.position + this.deleted)
+				.insert(this.position, this.inserted);
+	}
+
+}
@@ -1,18 +1,58 @@
 package io.ghes.design_patterns.behavioural.memento;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The text is kept in a {@link Rope}, so typing into a large document does
+ * not copy it and snapshots share the unchanged parts of the text.
+ *
+ * The editor records its edits between two snapshots, so that a snapshot
+ * only holds those edits; every {@link #setCheckpointInterval(int)}
+ * snapshots, or after {@link #setText(String)}, it holds the whole text.
+ * Consecutive keystrokes are recorded as a single edit.
+ */
 public class Editor {
 	private static final Integer LINE_WITDH = 20;
+	private static final int DEFAULT_CHECKPOINT_INTERVAL = 32;
 
-	private String text = "";
+	private Rope text = Rope.EMPTY;
 	private Integer curX = 0;
 	private Integer curY = 0;
+	private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+	private Snapshot lastSnapshot;
+	private boolean checkpointNeeded;
+	private final List<Edit> edits = new ArrayList<>();
+	// text typed at one place since the last recorded edit
+	private StringBuilder typing;
+	private int typingPosition;
 
 	public String getText() {
-		return this.text;
+		return this.text.toString();
 	}
 
 	public void setText(final String text) {
-		this.text = text;
+		this.text = Rope.of(text);
+		this.checkpointNeeded = true;
+	}
+
+	Rope getRope() {
+		return this.text;
+	}
+
+	/**
+	 * @param checkpointInterval how many snapshots in a row share one
+	 *                           checkpoint, 1 for checkpoints only
+	 */
+	public void setCheckpointInterval(final int checkpointInterval) {
+		if (checkpointInterval < 1) {
+			throw new IllegalArgumentException("Checkpoint interval must be positive");
+		}
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public int getLength() {
+		return this.text.length();
 	}
 
 	public Integer getCurX() {
@@ -33,21 +73,86 @@ public class Editor {
 
 	public void type(final String text) {
 		System.out.println(" *user is typing* ");
-		this.text += text;
+		this.record(this.text.length(), 0, text);
+		this.text = this.text.append(text);
 		this.curX += text.length() % LINE_WITDH;
 		this.curY += text.length() / LINE_WITDH;
 	}
 
+	/**
+	 * Inserts the text at the given position; the cursor does not move.
+	 */
+	public void insert(final int position, final String text) {
+		this.text = this.text.insert(position, text);
+		this.record(position, 0, text);
+	}
+
+	/**
+	 * Deletes the text from <code>from</code>, included, to <code>to</code>,
+	 * excluded; the cursor does not move.
+	 */
+	public void delete(final int from, final int to) {
+		this.text = this.text.delete(from, to);
+		this.record(from, to - from, "");
+	}
+
 	public Snapshot createSnapshot() {
-		return new Snapshot(this, this.text, this.curX, this.curY);
+		this.closeTyping();
+		final Snapshot snapshot;
+		if (this.lastSnapshot == null || this.checkpointNeeded
+				|| this.lastSnapshot.getDepth() + 1 >= this.checkpointInterval) {
+			snapshot = new Snapshot(this, this.text, this.curX, this.curY);
+		} else {
+			snapshot = new Snapshot(this, this.lastSnapshot, this.edits.toArray(new Edit[0]), this.curX, this.curY);
+		}
+		this.edits.clear();
+		this.lastSnapshot = snapshot;
+		this.checkpointNeeded = false;
+		return snapshot;
+	}
+
+	/**
+	 * Puts the editor back in the state of the snapshot; the next snapshot
+	 * records the edits made from there.
+	 */
+	void restore(final Snapshot snapshot, final Rope text, final Integer curX, final Integer curY) {
+		this.text = text;
+		this.curX = curX;
+		this.curY = curY;
+		this.edits.clear();
+		this.typing = null;
+		this.lastSnapshot = snapshot;
+		this.checkpointNeeded = false;
+	}
+
+	private void record(final int position, final int deleted, final String inserted) {
+		if (deleted == 0 && this.typing != null && position == this.typingPosition + this.typing.length()) {
+			this.typing.append(inserted);
+			return;
+		}
+		this.closeTyping();
+		if (deleted == 0) {
+			this.typing = new StringBuilder(inserted);
+			this.typingPosition = position;
+		} else {
+			this.edits.add(new Edit(position, deleted, inserted));
+		}
+	}
+
+	private void closeTyping() {
+		if (this.typing != null) {
+			this.edits.add(new Edit(this.typingPosition, 0, this.typing.toString()));
+			this.typing = null;
+		}
 	}
 
 	@Override
 	public String toString() {
 		final StringBuilder sb = new StringBuilder();
+		final String text = this.text.toString();
 		int cc = 0;
-		while (cc < this.text.length()) {
-			sb.append(this.text.charAt(cc));
+		while (cc < text.length()) {
+			sb.append(text.charAt(cc));
 			if (cc != 0 && cc % LINE_WITDH == 0) {
 				sb.append("\n");
 			}
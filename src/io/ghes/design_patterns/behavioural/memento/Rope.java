@@ -0,0 +1,268 @@
+package io.ghes.design_patterns.behavioural.memento;
+
+/**
+ * Immutable text stored as a balanced tree of short chunks.
+ *
+ * Inserting or deleting copies only the O(log n) nodes on the path to the
+ * change, every other node is shared with the rope it was made from, so
+ * keeping many versions of a large text costs little. A short insert into
+ * a chunk with room left just copies that chunk; otherwise the rope is
+ * split and joined back, keeping the tree height-balanced as an AVL tree.
+ */
+final class Rope {
+
+	static final Rope EMPTY = new Rope(null);
+
+	private static final int MAX_LEAF = 512;
+
+	private final Node root;
+
+	private Rope(final Node root) {
+		this.root = root;
+	}
+
+	static Rope of(final String text) {
+		return new Rope(build(text, 0, text.length()));
+	}
+
+	int length() {
+		return length(this.root);
+	}
+
+	char charAt(final int index) {
+		if (index < 0 || index >= this.length()) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		Node node = this.root;
+		int offset = index;
+		while (node.text == null) {
+			final int leftLength = length(node.left);
+			if (offset < leftLength) {
+				node = node.left;
+			} else {
+				offset -= leftLength;
+				node = node.right;
+			}
+		}
+		return node.text.charAt(offset);
+	}
+
+	Rope append(final String text) {
+		return this.insert(this.length(), text);
+	}
+
+	Rope insert(final int index, final String text) {
+		if (index < 0 || index > this.length()) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		if (text.isEmpty()) {
+			return this;
+		}
+		if (this.root != null && text.length() < MAX_LEAF) {
+			final Node inPlace = insertInLeaf(this.root, index, text);
+			if (inPlace != null) {
+				return new Rope(inPlace);
+			}
+		}
+		final Node[] parts = split(this.root, index);
+		return new Rope(join(join(parts[0], build(text, 0, text.length())), parts[1]));
+	}
+
+	/**
+	 * @return the rope without the characters from <code>from</code>, included,
+	 *         to <code>to</code>, excluded
+	 */
+	Rope delete(final int from, final int to) {
+		if (from < 0 || to > this.length() || from > to) {
+			throw new IndexOutOfBoundsException("[" + from + ", " + to + ")");
+		}
+		if (from == to) {
+			return this;
+		}
+		final Node[] tail = split(this.root, to);
+		final Node[] head = split(tail[0], from);
+		return new Rope(join(head[0], tail[1]));
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder(this.length());
+		appendTo(this.root, sb);
+		return sb.toString();
+	}
+
+	private static void appendTo(final Node node, final StringBuilder sb) {
+		if (node == null) {
+			return;
+		}
+		if (node.text != null) {
+			sb.append(node.text);
+			return;
+		}
+		appendTo(node.left, sb);
+		appendTo(node.right, sb);
+	}
+
+	private static Node build(final String text, final int from, final int to) {
+		if (from == to) {
+			return null;
+		}
+		if (to - from <= MAX_LEAF) {
+			return new Node(text.substring(from, to));
+		}
+		// cut on a chunk boundary so that the leaves stay full
+		final int chunks = (to - from + MAX_LEAF - 1) / MAX_LEAF;
+		final int middle = from + chunks / 2 * MAX_LEAF;
+		return new Node(build(text, from, middle), build(text, middle, to));
+	}
+
+	/**
+	 * @return the node with the text inserted in the leaf holding the index,
+	 *         or null if that leaf has no room left
+	 */
+	private static Node insertInLeaf(final Node node, final int index, final String text) {
+		if (node.text != null) {
+			if (node.text.length() + text.length() > MAX_LEAF) {
+				return null;
+			}
+			return new Node(node.text.substring(0, index) + text + node.text.substring(index));
+		}
+		final int leftLength = length(node.left);
+		if (index <= leftLength) {
+			final Node left = insertInLeaf(node.left, index, text);
+			return left == null ? null : new Node(left, node.right);
+		}
+		final Node right = insertInLeaf(node.right, index - leftLength, text);
+		return right == null ? null : new Node(node.left, right);
+	}
+
+	/**
+	 * @return the first <code>index</code> characters, and the others
+	 */
+	private static Node[] split(final Node node, final int index) {
+		if (node == null) {
+			return new Node[2];
+		}
+		if (node.text != null) {
+			return new Node[] { index == 0 ? null : new Node(node.text.substring(0, index)),
+					index == node.length ? null : new Node(node.text.substring(index)) };
+		}
+		final int leftLength = length(node.left);
+		if (index < leftLength) {
+			final Node[] parts = split(node.left, index);
+			parts[1] = join(parts[1], node.right);
+			return parts;
+		}
+		if (index == leftLength) {
+			return new Node[] { node.left, node.right };
+		}
+		final Node[] parts = split(node.right, index - leftLength);
+		parts[0] = join(node.left, parts[0]);
+		return parts;
+	}
+
+	/**
+	 * Concatenates two balanced trees into a balanced tree, in time
+	 * proportional to the difference of their heights.
+	 */
+	private static Node join(final Node left, final Node right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		if (left.height > right.height + 1) {
+			return joinRight(left, right);
+		}
+		if (right.height > left.height + 1) {
+			return joinLeft(left, right);
+		}
+		return new Node(left, right);
+	}
+
+	/**
+	 * Hangs the shorter tree on the right spine of the taller one.
+	 */
+	private static Node joinRight(final Node tall, final Node right) {
+		final Node spine = tall.right;
+		if (spine.height <= right.height + 1) {
+			final Node joined = new Node(spine, right);
+			if (joined.height <= tall.left.height + 1) {
+				return new Node(tall.left, joined);
+			}
+			return rotateLeft(new Node(tall.left, rotateRight(joined)));
+		}
+		final Node joined = joinRight(spine, right);
+		final Node result = new Node(tall.left, joined);
+		if (joined.height <= tall.left.height + 1) {
+			return result;
+		}
+		return rotateLeft(result);
+	}
+
+	/**
+	 * Mirror of {@link #joinRight(Node, Node)}.
+	 */
+	private static Node joinLeft(final Node left, final Node tall) {
+		final Node spine = tall.left;
+		if (spine.height <= left.height + 1) {
+			final Node joined = new Node(left, spine);
+			if (joined.height <= tall.right.height + 1) {
+				return new Node(joined, tall.right);
+			}
+			return rotateRight(new Node(rotateLeft(joined), tall.right));
+		}
+		final Node joined = joinLeft(left, spine);
+		final Node result = new Node(joined, tall.right);
+		if (joined.height <= tall.right.height + 1) {
+			return result;
+		}
+		return rotateRight(result);
+	}
+
+	private static Node rotateLeft(final Node node) {
+		final Node right = node.right;
+		return new Node(new Node(node.left, right.left), right.right);
+	}
+
+	private static Node rotateRight(final Node node) {
+		final Node left = node.left;
+		return new Node(left.left, new Node(left.right, node.right));
+	}
+
+	private static int length(final Node node) {
+		return node == null ? 0 : node.length;
+	}
+
+	/**
+	 * Either a leaf holding a chunk of text or an inner node with two
+	 * children.
+	 */
+	private static final class Node {
+
+		private final String text;
+		private final Node left;
+		private final Node right;
+		private final int length;
+		private final int height;
+
+		private Node(final String text) {
+			this.text = text;
+			this.left = null;
+			this.right = null;
+			this.length = text.length();
+			this.height = 0;
+		}
+
+		private Node(final Node left, final Node right) {
+			this.text = null;
+			this.left = left;
+			this.right = right;
+			this.length = left.length + right.length;
+			this.height = Math.max(left.height, right.height) + 1;
+		}
+
+	}
+
+}
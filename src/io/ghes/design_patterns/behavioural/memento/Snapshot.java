@@ -1,23 +1,247 @@
 package io.ghes.design_patterns.behavioural.memento;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * State of an {@link Editor} at some point.
+ *
+ * A snapshot is either a checkpoint, holding the whole text, or a delta,
+ * holding only the edits made since the previous snapshot of the same
+ * editor. Restoring a delta replays the edits of every delta since the
+ * nearest checkpoint.
+ *
+ * The text or the edits can be compressed, from any thread, once the
+ * snapshot is not likely to be restored soon; they are inflated again every
+ * time they are needed.
+ */
 public class Snapshot {
 
+	private static final int BASE_FOOTPRINT = 64;
+	private static final int EDIT_FOOTPRINT = 32;
+
 	private final Editor editor;
-	private final String text;
+	private final AtomicReference<Payload> payload;
+	private Snapshot previous;
+	private int depth;
+	// footprint counted by the handler holding it, 0 out of a history
+	long counted;
 	private final Integer curX;
 	private final Integer curY;
 
 	public Snapshot(final Editor editor, final String text, final Integer curX, final Integer curY) {
+		this(editor, Rope.of(text), curX, curY);
+	}
+
+	/**
+	 * Creates a checkpoint.
+	 */
+	Snapshot(final Editor editor, final Rope text, final Integer curX, final Integer curY) {
+		this.editor = editor;
+		this.payload = new AtomicReference<>(new Payload(text, null, null));
+		this.previous = null;
+		this.depth = 0;
+		this.curX = curX;
+		this.curY = curY;
+	}
+
+	/**
+	 * Creates a delta.
+	 */
+	Snapshot(final Editor editor, final Snapshot previous, final Edit[] edits, final Integer curX,
+			final Integer curY) {
 		this.editor = editor;
-		this.text = text;
+		this.payload = new AtomicReference<>(new Payload(null, edits, null));
+		this.previous = previous;
+		this.depth = previous.depth + 1;
 		this.curX = curX;
 		this.curY = curY;
 	}
 
+	public boolean isCheckpoint() {
+		return this.previous == null;
+	}
+
+	public boolean isCompressed() {
+		return this.payload.get().compressed != null;
+	}
+
+	/**
+	 * @return the snapshot this delta applies to, null for a checkpoint
+	 */
+	Snapshot getPrevious() {
+		return this.previous;
+	}
+
+	/**
+	 * @return how many deltas separate this snapshot from its checkpoint
+	 */
+	int getDepth() {
+		return this.depth;
+	}
+
+	/**
+	 * @return an estimate of the bytes retained by the snapshot itself; a
+	 *         checkpoint counts its whole text, even if shared with the editor
+	 */
+	long getFootprint() {
+		final Payload current = this.payload.get();
+		if (current.compressed != null) {
+			return BASE_FOOTPRINT + current.compressed.length;
+		}
+		if (current.text != null) {
+			return BASE_FOOTPRINT + 2L * current.text.length();
+		}
+		long footprint = BASE_FOOTPRINT;
+		for (final Edit edit : current.edits) {
+			footprint += EDIT_FOOTPRINT + 2L * edit.getInserted()
+					.length();
+		}
+		return footprint;
+	}
+
 	public void restore() {
-		this.editor.setText(this.text);
-		this.editor.setCurX(this.curX);
-		this.editor.setCurY(this.curY);
+		this.editor.restore(this, this.text(), this.curX, this.curY);
+	}
+
+	/**
+	 * @return the text at the time of the snapshot
+	 */
+	Rope text() {
+		final Deque<Snapshot> deltas = new ArrayDeque<>();
+		Snapshot snapshot = this;
+		while (!snapshot.isCheckpoint()) {
+			deltas.push(snapshot);
+			snapshot = snapshot.previous;
+		}
+		Rope text = snapshot.payload.get()
+				.text();
+		for (final Snapshot delta : deltas) {
+			for (final Edit edit : delta.payload.get()
+					.edits()) {
+				text = edit.applyTo(text);
+			}
+		}
+		return text;
+	}
+
+	/**
+	 * Turns a delta into a checkpoint, so that the snapshots before it can be
+	 * forgotten.
+	 */
+	void rebase() {
+		if (this.isCheckpoint()) {
+			return;
+		}
+		this.payload.set(new Payload(this.text(), null, null));
+		this.previous = null;
+		this.depth = 0;
+	}
+
+	/**
+	 * Deflates the text or the edits; does nothing if the snapshot changed
+	 * meanwhile.
+	 */
+	void compress() {
+		final Payload current = this.payload.get();
+		if (current.compressed == null) {
+			this.payload.compareAndSet(current, current.compress());
+		}
+	}
+
+	/**
+	 * Either the text, the edits, or one of them compressed.
+	 */
+	private static final class Payload {
+
+		private final Rope text;
+		private final Edit[] edits;
+		private final byte[] compressed;
+		// what the compressed bytes hold
+		private final boolean checkpoint;
+
+		private Payload(final Rope text, final Edit[] edits, final byte[] compressed) {
+			this(text, edits, compressed, text != null);
+		}
+
+		private Payload(final Rope text, final Edit[] edits, final byte[] compressed, final boolean checkpoint) {
+			this.text = text;
+			this.edits = edits;
+			this.compressed = compressed;
+			this.checkpoint = checkpoint;
+		}
+
+		private Rope text() {
+			if (this.compressed == null) {
+				return this.text;
+			}
+			try (DataInputStream in = this.inflate()) {
+				return Rope.of(readString(in));
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private Edit[] edits() {
+			if (this.compressed == null) {
+				return this.edits;
+			}
+			try (DataInputStream in = this.inflate()) {
+				final Edit[] inflated = new Edit[in.readInt()];
+				for (int i = 0; i < inflated.length; i++) {
+					inflated[i] = new Edit(in.readInt(), in.readInt(), readString(in));
+				}
+				return inflated;
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private Payload compress() {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+				if (this.checkpoint) {
+					writeString(out, this.text.toString());
+				} else {
+					out.writeInt(this.edits.length);
+					for (final Edit edit : this.edits) {
+						out.writeInt(edit.getPosition());
+						out.writeInt(edit.getDeleted());
+						writeString(out, edit.getInserted());
+					}
+				}
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return new Payload(null, null, bytes.toByteArray(), this.checkpoint);
+		}
+
+		private DataInputStream inflate() {
+			return new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(this.compressed)));
+		}
+
+		private static void writeString(final DataOutputStream out, final String value) throws IOException {
+			final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(utf8.length);
+			out.write(utf8);
+		}
+
+		private static String readString(final DataInputStream in) throws IOException {
+			final byte[] utf8 = new byte[in.readInt()];
+			in.readFully(utf8);
+			return new String(utf8, StandardCharsets.UTF_8);
+		}
+
 	}
 
 }
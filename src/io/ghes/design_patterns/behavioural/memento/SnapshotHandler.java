@@ -1,21 +1,226 @@
 package io.ghes.design_patterns.behavioural.memento;
 
-import java.util.Stack;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Undo history of an editor, optionally kept within a memory budget.
+ *
+ * The footprint of every snapshot is added up; when the total goes over the
+ * budget the oldest snapshots are forgotten first, and the oldest one left is
+ * turned into a checkpoint if it was a delta. The latest snapshot is always
+ * kept, even if it alone is over the budget. Snapshots that are more than a
+ * given number of steps away from the top of the history are compressed in
+ * the background.
+ *
+ * A delta always applies to the snapshot before it in the history: one
+ * taken after an undo, which applies to the snapshot just undone, is turned
+ * into a checkpoint, so that no snapshot out of the history is retained.
+ *
+ * A handler belongs to one editing session and is not thread safe; see
+ * {@link #synchronizedHandler(long, int)} for a handler shared by threads.
+ */
 public class SnapshotHandler {
 
-	private final Stack<Snapshot> snapshotList = new Stack<>();
+	private final Deque<Snapshot> snapshotList = new ArrayDeque<>();
+	// snapshots not handed to the compressor yet, newest last
+	private final Deque<Snapshot> hotSnapshots = new ArrayDeque<>();
+	private final long budget;
+	private final int hotLimit;
+	private final Executor compressor;
+	// compressed snapshots whose new footprint is not counted yet
+	private final Queue<WeakReference<Snapshot>> compressed = new ConcurrentLinkedQueue<>();
+	// sum of the counted footprints
+	private long used;
+
+	/**
+	 * Creates a handler without budget nor compression.
+	 */
+	public SnapshotHandler() {
+		this(Long.MAX_VALUE, Integer.MAX_VALUE, Runnable::run);
+	}
+
+	/**
+	 * Creates a handler compressing on a background thread shared by all the
+	 * handlers.
+	 *
+	 * @param budget   maximum number of bytes retained by the history
+	 * @param hotLimit how many of the latest snapshots are kept uncompressed
+	 */
+	public SnapshotHandler(final long budget, final int hotLimit) {
+		this(budget, hotLimit, SharedCompressor.EXECUTOR);
+	}
+
+	public SnapshotHandler(final long budget, final int hotLimit, final Executor compressor) {
+		if (budget < 0 || hotLimit < 0) {
+			throw new IllegalArgumentException("Budget and hot limit must not be negative");
+		}
+		this.budget = budget;
+		this.hotLimit = hotLimit;
+		this.compressor = compressor;
+	}
+
+	/**
+	 * @return a handler whose methods can be called from several threads
+	 */
+	public static SnapshotHandler synchronizedHandler(final long budget, final int hotLimit) {
+		return new SynchronizedSnapshotHandler(budget, hotLimit);
+	}
 
 	public void backup(final Snapshot snapshot) {
-		this.snapshotList.add(snapshot);
+		this.countCompressed();
+		if (!snapshot.isCheckpoint() && snapshot.getPrevious() != this.snapshotList.peekLast()) {
+			snapshot.rebase();
+		}
+		this.snapshotList.addLast(snapshot);
+		snapshot.counted = snapshot.getFootprint();
+		this.used += snapshot.counted;
+		this.hotSnapshots.addLast(snapshot);
+		while (this.hotSnapshots.size() > this.hotLimit) {
+			this.compressLater(this.hotSnapshots.pollFirst());
+		}
+		if (this.used > this.budget) {
+			this.evict();
+		}
 	}
 
 	public void undo() {
 		System.out.println(" * user pressed CTRL+Z* ");
 		if (!this.snapshotList.isEmpty()) {
-			final Snapshot pop = this.snapshotList.pop();
+			final Snapshot pop = this.snapshotList.pollLast();
+			if (this.hotSnapshots.peekLast() == pop) {
+				this.hotSnapshots.pollLast();
+			}
+			this.forget(pop);
 			pop.restore();
 		}
 	}
 
+	public int size() {
+		return this.snapshotList.size();
+	}
+
+	/**
+	 * @return the bytes retained by the history, compressions still running
+	 *         excluded
+	 */
+	public long getUsedBytes() {
+		this.countCompressed();
+		return this.used;
+	}
+
+	public long getBudget() {
+		return this.budget;
+	}
+
+	private void evict() {
+		boolean rebased = false;
+		while (this.used > this.budget && this.snapshotList.size() > 1) {
+			final Snapshot oldest = this.snapshotList.pollFirst();
+			if (this.hotSnapshots.peekFirst() == oldest) {
+				this.hotSnapshots.pollFirst();
+			}
+			this.forget(oldest);
+			final Snapshot next = this.snapshotList.peekFirst();
+			if (next != null && !next.isCheckpoint()) {
+				next.rebase();
+				this.used += next.getFootprint() - next.counted;
+				next.counted = next.getFootprint();
+				rebased = true;
+			}
+		}
+		// the hot snapshots are the latest ones, the first is hot only if it
+		// heads them
+		final Snapshot first = this.snapshotList.peekFirst();
+		if (rebased && this.hotSnapshots.peekFirst() != first) {
+			this.compressLater(first);
+		}
+	}
+
+	private void forget(final Snapshot snapshot) {
+		this.used -= snapshot.counted;
+		snapshot.counted = 0;
+	}
+
+	/**
+	 * Counts again the snapshots compressed since the last call; those out of
+	 * the history are no longer counted and are skipped.
+	 */
+	private void countCompressed() {
+		WeakReference<Snapshot> cold;
+		while ((cold = this.compressed.poll()) != null) {
+			final Snapshot snapshot = cold.get();
+			if (snapshot != null && snapshot.counted != 0) {
+				this.used += snapshot.getFootprint() - snapshot.counted;
+				snapshot.counted = snapshot.getFootprint();
+			}
+		}
+	}
+
+	/**
+	 * The compressor only holds a weak reference, a snapshot evicted before
+	 * its turn is not kept alive by the queue.
+	 */
+	private void compressLater(final Snapshot snapshot) {
+		final WeakReference<Snapshot> cold = new WeakReference<>(snapshot);
+		this.compressor.execute(() -> {
+			final Snapshot target = cold.get();
+			if (target != null) {
+				target.compress();
+				this.compressed.add(cold);
+			}
+		});
+	}
+
+	private static final class SharedCompressor {
+
+		private static final int QUEUE_CAPACITY = 1024;
+
+		// when the queue is full the snapshot stays uncompressed, it is counted as such
+		private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+					final Thread thread = new Thread(r, "snapshot-compressor");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}, new ThreadPoolExecutor.DiscardPolicy());
+
+	}
+
+	private static final class SynchronizedSnapshotHandler extends SnapshotHandler {
+
+		private SynchronizedSnapshotHandler(final long budget, final int hotLimit) {
+			super(budget, hotLimit);
+		}
+
+		@Override
+		public synchronized void backup(final Snapshot snapshot) {
+			super.backup(snapshot);
+		}
+
+		@Override
+		public synchronized void undo() {
+			super.undo();
+		}
+
+		@Override
+		public synchronized int size() {
+			return super.size();
+		}
+
+		@Override
+		public synchronized long getUsedBytes() {
+			return super.getUsedBytes();
+		}
+
+	}
+
 }